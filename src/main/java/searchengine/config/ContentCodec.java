@@ -0,0 +1,68 @@
+package searchengine.config;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие HTML страниц для хранения в базе: текст в UTF-8, сжатый deflate.
+ * HTML сжимается в 5-10 раз, поэтому таблица page и её доля в буферном пуле MySQL
+ * уменьшаются во столько же раз.
+ */
+public final class ContentCodec {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private ContentCodec() {
+    }
+
+    public static byte[] compress(String content) {
+        return compress(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 6);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Сжатое содержимое страницы повреждено");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Сжатое содержимое страницы повреждено", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Во сколько раз сжатые данные меньше исходного текста в UTF-8.
+     */
+    public static float ratio(int rawLength, int compressedLength) {
+        return compressedLength == 0 ? 1f : (float) rawLength / compressedLength;
+    }
+}
@@ -0,0 +1,37 @@
+package searchengine.config;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Ограничения обхода одного сайта: глубина ссылок от стартовой страницы,
+ * число загруженных HTML-страниц и продолжительность обхода. Нулевое значение - без ограничения.
+ */
+@Getter
+public class CrawlBudget {
+
+    private final int maxDepth;
+    private final int maxPages;
+    private final Duration maxDuration;
+
+    public CrawlBudget(int maxDepth, int maxPages, Duration maxDuration) {
+        this.maxDepth = Math.max(0, maxDepth);
+        this.maxPages = Math.max(0, maxPages);
+        this.maxDuration = maxDuration == null || maxDuration.isNegative() ? Duration.ZERO : maxDuration;
+    }
+
+    public static CrawlBudget of(SiteConfig siteConfig, CrawlerSettings crawlerSettings) {
+        return new CrawlBudget(
+                siteConfig.getMaxDepth() != null ? siteConfig.getMaxDepth() : crawlerSettings.getDefaultMaxDepth(),
+                siteConfig.getMaxPages() != null ? siteConfig.getMaxPages() : crawlerSettings.getDefaultMaxPages(),
+                siteConfig.getMaxDuration() != null ? siteConfig.getMaxDuration() : crawlerSettings.getDefaultMaxDuration());
+    }
+
+    @Override
+    public String toString() {
+        return "глубина " + (maxDepth > 0 ? maxDepth : "-")
+                + ", страниц " + (maxPages > 0 ? maxPages : "-")
+                + ", время " + (maxDuration.isZero() ? "-" : maxDuration);
+    }
+}
@@ -1,162 +1,113 @@
 package searchengine.config;
 
-import lombok.Data;
-import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.IndexingMode;
 import searchengine.model.Page;
-import searchengine.model.Site;
-import searchengine.model.Status;
-import searchengine.repository.PageRepository;
-import searchengine.repository.SiteRepository;
-import searchengine.services.impl.IndexingServiceImpl;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
+import searchengine.services.impl.IndexingPipeline;
+import searchengine.services.impl.PageFetcher;
+import searchengine.services.interfaces.IndexPageService;
 
-import java.net.URL;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.RecursiveTask;
-
-@Data
-public class CrawlPageTask extends RecursiveTask<Void> {
-
-    private SiteRepository siteRepository;
-    private PageRepository pageRepository;
-    private String url;
-    private Site site;
-    private List<String> newLinks;
-    private final String userAgent;
-    private final String referrer;
-    private final Map<String, Boolean> visitedUrls;
-    private IndexingServiceImpl indexingServiceImpl;
-
-    public CrawlPageTask(String url, Site site, PageRepository pageRepository, SiteRepository siteRepository, Map<String, Boolean> visitedUrls, String userAgent, String referrer) {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Стадия загрузки: скачивает страницу, ставит в очередь найденные ссылки и передаёт
+ * страницу в конвейер индексации. Страница отмечается завершённой после записи в базу.
+ * Страница, которую не удалось загрузить (сетевая ошибка, ответ 5xx), завершённой
+ * не отмечается, и при возобновлении обхода загружается снова.
+ * Ожидание ответа не занимает поток: запрос выполняется асинхронно, а поиск
+ * сохранённой страницы и разбор ответа идут на пуле обработки.
+ */
+public class CrawlPageTask {
+
+    private final String url;
+    private final int depth;
+    private final CrawlSession session;
+    private final PageFetcher pageFetcher;
+    private final IndexPageService indexPageService;
+    private final IndexingPipeline pipeline;
+    private Page previous;
+    private long fetchStarted;
+
+    public CrawlPageTask(String url, int depth, CrawlSession session, PageFetcher pageFetcher,
+                         IndexPageService indexPageService, IndexingPipeline pipeline) {
         this.url = url;
-        this.site = site;
-        this.pageRepository = pageRepository;
-        this.siteRepository = siteRepository;
-        this.visitedUrls = visitedUrls;
-        this.userAgent = userAgent;
-        this.referrer = referrer;
-        this.newLinks = new ArrayList<>();
+        this.depth = depth;
+        this.session = session;
+        this.pageFetcher = pageFetcher;
+        this.indexPageService = indexPageService;
+        this.pipeline = pipeline;
     }
 
-    @Override
-    protected Void compute() {
-        try {
-            if (!IndexingServiceImpl.isIndexing) {
-                return null;
-            }
-
-            int responseCode = Jsoup.connect(url).ignoreHttpErrors(true).execute().statusCode();
-            savePage(url, site, responseCode);
-
-
-            Elements elements = getElements(url);
-            newLinks = extractNewLinks(elements);
-
-            List<CrawlPageTask> subTasks = new ArrayList<>();
-            for (String link : newLinks) {
-                if (!visitedUrls.containsKey(link) && IndexingServiceImpl.isIndexing) {
-                    visitedUrls.put(link, true);
-                    CrawlPageTask task = new CrawlPageTask(link, site, pageRepository, siteRepository, visitedUrls, userAgent, referrer);
-                    task.fork();
-                    subTasks.add(task);
-                }
-            }
-
-            for (CrawlPageTask task : subTasks) {
-                task.join();
-            }
-
-        } catch (Exception e) {
-            updateSiteStatus(site, Status.FAILED, e.getMessage());
+    /**
+     * @param executor пул обработки; сетевой обмен выполняется клиентом HTTP без него
+     * @return завершается, когда страница обработана или обработка не удалась
+     */
+    public CompletableFuture<Void> run(Executor executor) {
+        if (session.isCancelled()) {
+            return CompletableFuture.completedFuture(null);
         }
-        return null;
+        return CompletableFuture.supplyAsync(this::findPrevious, executor)
+                .thenCompose(page -> {
+                    previous = page;
+                    fetchStarted = System.nanoTime();
+                    return pageFetcher.fetchAsync(url, page);
+                })
+                .handleAsync(this::process, executor);
     }
 
-    public Elements getElements(String url) throws Exception {
-        Document doc = Jsoup.connect(url)
-                .ignoreHttpErrors(true)
-                .ignoreContentType(true)
-                .maxBodySize(0)
-                .timeout(10_000)
-                .header("User-Agent", userAgent)
-                .referrer(referrer)
-                .get();
-        return doc.select("a[href]");
+    private Page findPrevious() {
+        return session.getMode() == IndexingMode.INCREMENTAL
+                ? indexPageService.findPage(session.getSite(), url).orElse(null)
+                : null;
     }
 
-    public List<String> extractNewLinks(Elements elements) {
-        List<String> links = new ArrayList<>();
-        for (org.jsoup.nodes.Element element : elements) {
-            String href = element.attr("abs:href");
-            if (!href.isEmpty() && href.startsWith("http")) {
-                links.add(href);
+    private Void process(FetchResult fetchResult, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!session.isCancelled()) {
+                session.getJob().error();
+                System.out.println("Ошибка при обработке страницы: " + url + " - " + cause);
             }
+            return null;
         }
-        return links;
-    }
-
-    @Transactional
-    private void savePage(String pageUrl, Site site, int responseCode) {
+        boolean handedOff = false;
+        boolean fetched = false;
         try {
-            Optional<Page> existingPage = pageRepository.findBySiteIdAndUrl(site.getId(), pageUrl);
-
-            if (existingPage.isEmpty()) {
-                Page newPage = new Page();
-                newPage.setSite(site);
-                newPage.setUrl(pageUrl);
-                newPage.setPath(getPathFromUrl(pageUrl));
-                newPage.setContent(fetchContent(pageUrl));
-                newPage.setCode(responseCode);
-
-                pageRepository.save(newPage);
-                System.out.println("Страница сохранена: " + pageUrl);
-            } else {
-                System.out.println("Страница уже существует: " + pageUrl);
+            pipeline.recordFetch(System.nanoTime() - fetchStarted);
+            session.getJob().pageFetched();
+            fetched = fetchResult.getStatusCode() < 500;
+            if (!fetchResult.isHtml()) {
+                System.out.println("Пропущен ответ с типом " + fetchResult.getHeader("Content-Type") + ": " + url);
+                return null;
             }
-        } catch (Exception e) {
-            updateSiteStatus(site, Status.FAILED, "Ошибка сохранения страницы: " + pageUrl);
-        }
-    }
+            session.pageFetched(url, fetchResult.getBaseUrl());
 
-    private void updateSiteStatus(Site site, Status newStatus, String errorMessage) {
-        boolean isStatusChanged = site.getStatusEnum() != newStatus;
-        boolean isErrorChanged = errorMessage != null && !errorMessage.equals(site.getError());
-
-        if (isStatusChanged || isErrorChanged) {
-            site.setStatusEnum(newStatus);
-            if (isStatusChanged) {
-                site.setTime(LocalDateTime.now());
-            }
-            if (isErrorChanged) {
-                site.setError(errorMessage);
+            List<String> links = fetchResult.isNotModified() && previous != null
+                    ? LinkExtractor.extract(previous.getContent(), url)
+                    : fetchResult.getLinks();
+            for (String link : links) {
+                session.offer(link, depth + 1);
             }
-            siteRepository.save(site);
-            System.out.println("Site обновлен: ID = " + site.getId() + ", Status = " + site.getStatusEnum());
-        } else {
-            System.out.println("Site не требует обновления: ID = " + site.getId());
-        }
-    }
 
-    private String getPathFromUrl(String url) {
-        try {
-            return new URL(url).getPath();
-        } catch (Exception e) {
-            throw new RuntimeException("Некорректный URL: " + url, e);
-        }
-    }
-
-    private String fetchContent(String pageUrl) {
-        try {
-            return Jsoup.connect(pageUrl).get().html();
+            if (previous != null
+                    && (fetchResult.isNotModified() || fetchResult.getContentHash().equals(previous.getContentHash()))) {
+                session.getJob().pageIndexed();
+                return null;
+            }
+            handedOff = pipeline.submit(session, fetchResult);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            System.out.println("Ошибка получения содержимого для: " + pageUrl);
-            return "";
+            session.getJob().error();
+            System.out.println("Ошибка при обработке страницы: " + url);
+            e.printStackTrace();
+        } finally {
+            if (fetched && !handedOff && !session.isCancelled()) {
+                session.completed(url);
+            }
         }
+        return null;
     }
 }
@@ -0,0 +1,315 @@
+package searchengine.config;
+
+import lombok.Getter;
+import searchengine.dto.indexing.SiteCrawlReport;
+import searchengine.model.IndexingMode;
+import searchengine.model.Site;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние обхода одного сайта: очередь ссылок с приоритетом по глубине
+ * и оценке ссылки, множество посещённых адресов, ограничения обхода
+ * и счётчик страниц, которые обрабатываются в данный момент.
+ */
+public class CrawlSession {
+
+    @Getter
+    private final Site site;
+    @Getter
+    private final SiteConfig siteConfig;
+    @Getter
+    private final VisitedUrlSet visitedUrls;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final String host;
+    private final FrontierLog frontierLog;
+    @Getter
+    private final IndexingMode mode;
+    @Getter
+    private final IndexingJob job;
+    @Getter
+    private final CrawlBudget budget;
+    private final long startedAtNanos = System.nanoTime();
+    private final Queue<FrontierEntry> frontier = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicInteger acceptedUrls = new AtomicInteger();
+    private final AtomicInteger fetchedPages = new AtomicInteger();
+    private final AtomicInteger rejectedUrls = new AtomicInteger();
+    private final AtomicInteger disallowedUrls = new AtomicInteger();
+    private final AtomicInteger cutByDepth = new AtomicInteger();
+    private final LongOpenHashSet cutByDepthUrls = new LongOpenHashSet(1024);
+    private final AtomicInteger cutByPageLimit = new AtomicInteger();
+    private final AtomicInteger cutByTime = new AtomicInteger();
+    private volatile RobotsRules robotsRules = RobotsRules.ALLOW_ALL;
+    private volatile boolean timeBudgetExhausted;
+    private volatile boolean pageBudgetExhausted;
+    private volatile boolean cancelled;
+
+    public CrawlSession(Site site, SiteConfig siteConfig, VisitedUrlSet visitedUrls, UrlCanonicalizer urlCanonicalizer,
+                        FrontierLog frontierLog, IndexingMode mode, IndexingJob job, CrawlBudget budget) {
+        this.site = site;
+        this.siteConfig = siteConfig;
+        this.visitedUrls = visitedUrls;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.frontierLog = frontierLog;
+        this.mode = mode;
+        this.job = job;
+        this.budget = budget;
+        String startUrl = urlCanonicalizer.canonicalize(siteConfig.getUrl());
+        this.host = startUrl == null ? null : URI.create(startUrl).getHost();
+    }
+
+    public boolean offer(String url) {
+        return offer(url, 0);
+    }
+
+    /**
+     * Ставит ссылку в очередь, если после приведения к каноническому виду
+     * она относится к хосту сайта, ведёт на HTML-страницу, не запрещена robots.txt,
+     * ещё не посещалась и укладывается в ограничения обхода сайта.
+     * Ограничение по числу страниц здесь не проверяется: в него засчитываются
+     * загруженные страницы, а не адреса в очереди, см. {@link #checkPageBudget()}.
+     */
+    public boolean offer(String url, int depth) {
+        if (cancelled) {
+            return false;
+        }
+        String canonicalUrl = urlCanonicalizer.canonicalize(url);
+        if (canonicalUrl == null
+                || !UrlCanonicalizer.isSameHost(canonicalUrl, host)
+                || !urlCanonicalizer.isHtmlCandidate(canonicalUrl)) {
+            rejectedUrls.incrementAndGet();
+            return false;
+        }
+        if (!robotsRules.isAllowed(canonicalUrl)) {
+            disallowedUrls.incrementAndGet();
+            return false;
+        }
+        if (budget.getMaxDepth() > 0 && depth > budget.getMaxDepth()) {
+            if (!visitedUrls.contains(canonicalUrl) && markCutByDepth(canonicalUrl)) {
+                cutByDepth.incrementAndGet();
+            }
+            return false;
+        }
+        if (!visitedUrls.add(canonicalUrl)) {
+            return false;
+        }
+        if (budget.getMaxDepth() > 0 && wasCutByDepth(canonicalUrl)) {
+            cutByDepth.decrementAndGet();
+        }
+        if (timeBudgetExhausted) {
+            cutByTime.incrementAndGet();
+            return false;
+        }
+        if (pageBudgetExhausted) {
+            cutByPageLimit.incrementAndGet();
+            return false;
+        }
+        acceptedUrls.incrementAndGet();
+        frontierLog.queued(canonicalUrl, depth);
+        frontier.add(new FrontierEntry(canonicalUrl, depth, LinkScorer.score(canonicalUrl), sequence.incrementAndGet()));
+        signal();
+        return true;
+    }
+
+    /**
+     * Возвращает в очередь адреса прерванного обхода, восстановленные из журнала.
+     */
+    public void restore(Map<String, Integer> pendingUrls) {
+        pendingUrls.forEach((url, depth) ->
+                frontier.add(new FrontierEntry(url, depth, LinkScorer.score(url), sequence.incrementAndGet())));
+        acceptedUrls.set(visitedUrls.size());
+        fetchedPages.set(Math.max(0, visitedUrls.size() - pendingUrls.size()));
+        signal();
+    }
+
+    /**
+     * Загружена HTML-страница сайта. Ответы с другим типом содержимого и неудачные
+     * загрузки в ограничение по числу страниц не засчитываются, как и перенаправление
+     * на адрес, который сам стоит в очереди или уже загружен: он будет засчитан отдельно.
+     */
+    public void pageFetched(String url, String finalUrl) {
+        String target = urlCanonicalizer.canonicalize(finalUrl);
+        if (target != null && !target.equals(urlCanonicalizer.canonicalize(url)) && visitedUrls.contains(target)) {
+            return;
+        }
+        fetchedPages.incrementAndGet();
+    }
+
+    /**
+     * Проверяет ограничение по числу загруженных страниц. Загружаемые сейчас страницы
+     * считаются загруженными, поэтому лимит не превышается; пока они не обработаны,
+     * очередь только придерживается - часть из них может оказаться не HTML.
+     * Когда лимит достигнут и загрузок нет, очередь очищается.
+     *
+     * @return true, если новые страницы сейчас загружать нельзя
+     */
+    public boolean checkPageBudget() {
+        if (pageBudgetExhausted) {
+            return true;
+        }
+        if (budget.getMaxPages() == 0 || fetchedPages.get() + inFlight.get() < budget.getMaxPages()) {
+            return false;
+        }
+        if (inFlight.get() > 0 || fetchedPages.get() < budget.getMaxPages()) {
+            return true;
+        }
+        pageBudgetExhausted = true;
+        int dropped = 0;
+        while (frontier.poll() != null) {
+            dropped++;
+        }
+        cutByPageLimit.addAndGet(dropped);
+        System.out.println("Загружено страниц сайта " + site.getUrl() + ": " + fetchedPages.get()
+                + ", лимит исчерпан, не загружено адресов из очереди: " + dropped);
+        signal();
+        return true;
+    }
+
+    /**
+     * Проверяет ограничение по времени. По его истечении очередь очищается,
+     * новые ссылки не принимаются, уже загружаемые страницы дообрабатываются.
+     *
+     * @return true, если время обхода сайта исчерпано
+     */
+    public boolean checkTimeBudget() {
+        if (timeBudgetExhausted) {
+            return true;
+        }
+        if (budget.getMaxDuration().isZero() || System.nanoTime() - startedAtNanos < budget.getMaxDuration().toNanos()) {
+            return false;
+        }
+        timeBudgetExhausted = true;
+        int dropped = 0;
+        while (frontier.poll() != null) {
+            dropped++;
+        }
+        cutByTime.addAndGet(dropped);
+        System.out.println("Время обхода сайта " + site.getUrl() + " исчерпано, не загружено адресов из очереди: " + dropped);
+        signal();
+        return true;
+    }
+
+    public void completed(String url) {
+        frontierLog.completed(url);
+    }
+
+    public int getRejectedUrls() {
+        return rejectedUrls.get();
+    }
+
+    public int getDisallowedUrls() {
+        return disallowedUrls.get();
+    }
+
+    public void setRobotsRules(RobotsRules robotsRules) {
+        this.robotsRules = robotsRules == null ? RobotsRules.ALLOW_ALL : robotsRules;
+    }
+
+    public FrontierEntry poll() {
+        return frontier.poll();
+    }
+
+    public void taskStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void taskFinished() {
+        inFlight.decrementAndGet();
+        signal();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Страница передана в конвейер индексации и ещё не записана в базу.
+     */
+    public void writeQueued() {
+        pendingWrites.incrementAndGet();
+    }
+
+    public void writeFinished() {
+        pendingWrites.decrementAndGet();
+        signal();
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites.get();
+    }
+
+    public int getQueued() {
+        return frontier.size();
+    }
+
+    public boolean isCancelled() {
+        return cancelled || job.isCancelled();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        frontier.clear();
+        signal();
+    }
+
+    /**
+     * Сводка по ограничениям обхода: сколько адресов принято и сколько отсечено по каждой причине.
+     */
+    public SiteCrawlReport report() {
+        SiteCrawlReport report = new SiteCrawlReport();
+        report.setUrl(site.getUrl());
+        report.setBudget(budget.toString());
+        report.setPagesQueued(acceptedUrls.get());
+        report.setPagesFetched(fetchedPages.get());
+        report.setCutByDepth(cutByDepth.get());
+        report.setCutByPageLimit(cutByPageLimit.get());
+        report.setCutByTime(cutByTime.get());
+        if (isCancelled()) {
+            report.setStopReason("CANCELLED");
+        } else if (timeBudgetExhausted) {
+            report.setStopReason("MAX_DURATION");
+        } else if (pageBudgetExhausted) {
+            report.setStopReason("MAX_PAGES");
+        } else if (cutByDepth.get() > 0) {
+            report.setStopReason("MAX_DEPTH");
+        }
+        return report;
+    }
+
+    /**
+     * Отсечённый по глубине адрес учитывается один раз, сколько бы страниц на него ни ссылалось.
+     *
+     * @return true, если адрес отсечён впервые
+     */
+    private boolean markCutByDepth(String canonicalUrl) {
+        synchronized (cutByDepthUrls) {
+            return cutByDepthUrls.add(VisitedUrlSet.fingerprint(canonicalUrl));
+        }
+    }
+
+    /**
+     * Адрес, отсечённый по глубине, может найтись позже по более короткому пути;
+     * тогда он уже не считается отсечённым.
+     */
+    private boolean wasCutByDepth(String canonicalUrl) {
+        synchronized (cutByDepthUrls) {
+            return cutByDepthUrls.contains(VisitedUrlSet.fingerprint(canonicalUrl));
+        }
+    }
+
+    public synchronized void awaitProgress(long timeoutMillis) throws InterruptedException {
+        wait(timeoutMillis);
+    }
+
+    private synchronized void signal() {
+        notifyAll();
+    }
+}
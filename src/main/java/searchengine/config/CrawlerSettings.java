@@ -0,0 +1,46 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerSettings {
+    private int maxConcurrentFetches = 200;
+    private int crawlThreads = 0;
+    private int defaultMaxConcurrentRequests = 4;
+    private int defaultMaxDepth = 0;
+    private int defaultMaxPages = 0;
+    private Duration defaultMaxDuration = Duration.ZERO;
+    private double defaultRequestsPerSecond = 5;
+    private int expectedUrlsPerSite = 100_000;
+    private boolean visitedBloomFilter = true;
+    private List<String> stripQueryParams = new ArrayList<>();
+    private List<String> skipExtensions = new ArrayList<>();
+    private String frontierDir = "frontier";
+    private int maxBodySize = 5 * 1024 * 1024;
+    private int connectTimeoutMs = 5_000;
+    private int readTimeoutMs = 15_000;
+    private boolean http2 = true;
+    private boolean respectRobotsTxt = true;
+    private boolean sitemapSeeding = true;
+    private int maxSitemapFiles = 50;
+    private int maxSitemapUrls = 50_000;
+    private int nearDuplicateDistance = 2;
+    private int lemmatizerThreads = 0;
+    private int writerThreads = 2;
+    private int lemmatizeQueueCapacity = 256;
+    private int writeQueueCapacity = 256;
+    private int writeBatchSize = 32;
+    private int morphologyCacheSize = 200_000;
+    private Duration frequencyFlushInterval = Duration.ofSeconds(5);
+    private double minRebuildPageRatio = 0.5;
+}
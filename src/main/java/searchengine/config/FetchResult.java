@@ -0,0 +1,196 @@
+package searchengine.config;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Результат однократной загрузки страницы: код ответа, заголовки и
+ * тело ответа. Все последующие шаги обхода (извлечение ссылок, сохранение
+ * страницы, лемматизация) работают с ним, не обращаясь к сети повторно.
+ * DOM-документ строится только при первом обращении к {@link #getDocument()},
+ * заголовок и текст - при первом обращении к {@link #getPageText()}.
+ */
+public final class FetchResult {
+
+    private static final int META_SNIFF_BYTES = 2048;
+    private static final Pattern META_CHARSET = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?([\\w-]+)", Pattern.CASE_INSENSITIVE);
+
+    private final String url;
+    private final String baseUrl;
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final String charsetName;
+    private final String contentHash;
+    private Document document;
+    private Long simHash;
+    private PageText pageText;
+
+    /**
+     * Массив body не копируется: вызывающий код передаёт его во владение результату.
+     */
+    public FetchResult(String url, String baseUrl, int statusCode, Map<String, String> headers, byte[] body, String charsetName) {
+        this.url = url;
+        this.baseUrl = baseUrl;
+        this.statusCode = statusCode;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.body = body;
+        this.charsetName = charsetName;
+        this.contentHash = sha256(body);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody() {
+        return body.clone();
+    }
+
+    public int getBodySize() {
+        return body.length;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public boolean isHtml() {
+        return isHtmlContentType(getHeader("Content-Type"));
+    }
+
+    public String getEtag() {
+        return getHeader("ETag");
+    }
+
+    public String getLastModified() {
+        return getHeader("Last-Modified");
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public synchronized long getSimHash() {
+        if (simHash == null) {
+            simHash = SimHash.compute(getContent());
+        }
+        return simHash;
+    }
+
+    /**
+     * Документ, разобранный для извлечения текста, не сохраняется: результат загрузки
+     * ждёт записи в очереди, и держать в ней DOM каждой страницы слишком дорого.
+     */
+    public synchronized PageText getPageText() {
+        if (pageText == null) {
+            try {
+                pageText = PageText.of(document != null ? document
+                        : Jsoup.parse(new ByteArrayInputStream(body), charsetName, baseUrl));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return pageText;
+    }
+
+    public List<String> getLinks() {
+        return LinkExtractor.extract(body, getCharset(), baseUrl);
+    }
+
+    public synchronized Document getDocument() {
+        if (document == null) {
+            try {
+                document = Jsoup.parse(new ByteArrayInputStream(body), charsetName, baseUrl);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Кодировка из заголовка Content-Type, иначе из тега meta в начале страницы, иначе UTF-8.
+     */
+    public Charset getCharset() {
+        String name = charsetName != null ? charsetName : sniffMetaCharset(body);
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                System.out.println("Неизвестная кодировка " + name + " для " + url);
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    public String getContent() {
+        return new String(body, getCharset());
+    }
+
+    public static boolean isHtmlContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/html") || type.startsWith("application/xhtml+xml");
+    }
+
+    private static String sniffMetaCharset(byte[] data) {
+        String head = new String(data, 0, Math.min(data.length, META_SNIFF_BYTES), StandardCharsets.ISO_8859_1);
+        Matcher matcher = META_CHARSET.matcher(head);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FetchResult{url='" + url + "', status=" + statusCode + ", bytes=" + body.length + "}";
+    }
+}
@@ -0,0 +1,143 @@
+package searchengine.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отпечатки содержимого страниц одного сайта в памяти: точный хеш и SimHash.
+ * SimHash разбит на четыре полосы по 16 бит; отпечатки с расстоянием Хэмминга
+ * не больше 3 обязательно совпадают хотя бы в одной полосе, поэтому кандидаты
+ * ищутся по полосам, а не перебором всех страниц сайта.
+ * Нулевой SimHash (страница без текста) в поиске похожих не участвует.
+ * Отпечатки страницы запоминаются и по её id, поэтому удаление затрагивает
+ * только записи этой страницы, а не весь индекс.
+ */
+public class FingerprintIndex {
+
+    public static final int MAX_DISTANCE = 3;
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private final int maxDistance;
+    private final Map<String, Integer> exact = new HashMap<>();
+    private final List<Map<Integer, List<long[]>>> bands = new ArrayList<>(BANDS);
+    private final Map<Integer, Fingerprint> byPage = new HashMap<>();
+
+    public FingerprintIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Расстояние между отпечатками должно быть от 0 до " + MAX_DISTANCE + ": " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Ищет страницу с тем же или почти тем же содержимым; если такой нет,
+     * регистрирует отпечатки страницы pageId. Проверка и добавление атомарны,
+     * поэтому из двух одновременно обрабатываемых копий полностью индексируется только одна.
+     *
+     * @return id найденной страницы-оригинала или null
+     */
+    public synchronized Integer findOrAdd(int pageId, String contentHash, long simHash) {
+        Integer duplicate = find(pageId, contentHash, simHash);
+        if (duplicate != null) {
+            return duplicate;
+        }
+        add(pageId, contentHash, simHash);
+        return null;
+    }
+
+    /**
+     * Быстрая проверка без регистрации: есть ли уже страница с таким же или почти таким же содержимым.
+     */
+    public synchronized boolean hasDuplicate(String contentHash, long simHash) {
+        return find(-1, contentHash, simHash) != null;
+    }
+
+    public synchronized void add(int pageId, String contentHash, long simHash) {
+        if (byPage.containsKey(pageId)) {
+            remove(pageId);
+        }
+        byPage.put(pageId, new Fingerprint(contentHash, simHash));
+        if (contentHash != null) {
+            exact.putIfAbsent(contentHash, pageId);
+        }
+        if (simHash == 0) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            bands.get(band).computeIfAbsent(bandKey(simHash, band), key -> new ArrayList<>(1))
+                    .add(new long[]{simHash, pageId});
+        }
+    }
+
+    public synchronized void remove(int pageId) {
+        Fingerprint fingerprint = byPage.remove(pageId);
+        if (fingerprint == null) {
+            return;
+        }
+        if (fingerprint.contentHash != null) {
+            exact.remove(fingerprint.contentHash, pageId);
+        }
+        if (fingerprint.simHash == 0) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            int key = bandKey(fingerprint.simHash, band);
+            List<long[]> entries = bands.get(band).get(key);
+            if (entries == null) {
+                continue;
+            }
+            entries.removeIf(entry -> entry[1] == pageId);
+            if (entries.isEmpty()) {
+                bands.get(band).remove(key);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return byPage.size();
+    }
+
+    private Integer find(int pageId, String contentHash, long simHash) {
+        if (contentHash != null) {
+            Integer id = exact.get(contentHash);
+            if (id != null && id != pageId) {
+                return id;
+            }
+        }
+        if (maxDistance <= 0 || simHash == 0) {
+            return null;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            List<long[]> candidates = bands.get(band).get(bandKey(simHash, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (long[] candidate : candidates) {
+                if (candidate[1] != pageId && SimHash.distance(candidate[0], simHash) <= maxDistance) {
+                    return (int) candidate[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int bandKey(long simHash, int band) {
+        return (int) ((simHash >>> (band * BAND_BITS)) & 0xffff);
+    }
+
+    private static final class Fingerprint {
+        private final String contentHash;
+        private final long simHash;
+
+        private Fingerprint(String contentHash, long simHash) {
+            this.contentHash = contentHash;
+            this.simHash = simHash;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package searchengine.config;
+
+import lombok.Getter;
+
+/**
+ * Адрес в очереди обхода. Первыми обрабатываются адреса меньшей глубины,
+ * при равной глубине - с большей оценкой ссылки, затем в порядке поступления.
+ */
+@Getter
+public final class FrontierEntry implements Comparable<FrontierEntry> {
+
+    private final String url;
+    private final int depth;
+    private final int score;
+    private final long sequence;
+
+    public FrontierEntry(String url, int depth, int score, long sequence) {
+        this.url = url;
+        this.depth = depth;
+        this.score = score;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(FrontierEntry other) {
+        if (depth != other.depth) {
+            return Integer.compare(depth, other.depth);
+        }
+        if (score != other.score) {
+            return Integer.compare(other.score, score);
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,100 @@
+package searchengine.config;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Журнал очереди обхода сайта на диске. Каждая поставленная в очередь ссылка
+ * записывается строкой "Q глубина url", каждая обработанная - строкой "D url".
+ * Строки старого формата "Q url" читаются с глубиной 0.
+ * Журнал только дописывается, поэтому после аварийной остановки
+ * по нему можно восстановить посещённые и ещё не обработанные адреса.
+ */
+public class FrontierLog implements Closeable {
+
+    private static final String QUEUED = "Q ";
+    private static final String DONE = "D ";
+
+    private final Path path;
+    private BufferedWriter writer;
+
+    private FrontierLog(Path path) {
+        this.path = path;
+    }
+
+    public static FrontierLog open(Path directory, int siteId) throws IOException {
+        Files.createDirectories(directory);
+        FrontierLog log = new FrontierLog(directory.resolve("site-" + siteId + ".frontier"));
+        log.writer = Files.newBufferedWriter(log.path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return log;
+    }
+
+    public static boolean exists(Path directory, int siteId) {
+        return Files.exists(directory.resolve("site-" + siteId + ".frontier"));
+    }
+
+    public static void delete(Path directory, int siteId) throws IOException {
+        Files.deleteIfExists(directory.resolve("site-" + siteId + ".frontier"));
+    }
+
+    /**
+     * Восстанавливает состояние прерванного обхода: все когда-либо поставленные
+     * в очередь адреса помечаются посещёнными, необработанные возвращаются
+     * вместе с глубиной.
+     */
+    public Map<String, Integer> replay(VisitedUrlSet visitedUrls) throws IOException {
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(QUEUED)) {
+                    String entry = line.substring(QUEUED.length());
+                    int depth = 0;
+                    int space = entry.indexOf(' ');
+                    if (space > 0 && Character.isDigit(entry.charAt(0))) {
+                        depth = Integer.parseInt(entry.substring(0, space));
+                        entry = entry.substring(space + 1);
+                    }
+                    visitedUrls.add(entry);
+                    pending.put(entry, depth);
+                } else if (line.startsWith(DONE)) {
+                    pending.remove(line.substring(DONE.length()));
+                }
+            }
+        }
+        return pending;
+    }
+
+    public synchronized void queued(String url, int depth) {
+        write(QUEUED, depth + " " + url);
+    }
+
+    public synchronized void completed(String url) {
+        write(DONE, url);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void write(String prefix, String url) {
+        try {
+            writer.write(prefix);
+            writer.write(url);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            System.out.println("Ошибка записи журнала очереди " + path + ": " + e.getMessage());
+        }
+    }
+}
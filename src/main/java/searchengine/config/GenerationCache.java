@@ -0,0 +1,98 @@
+package searchengine.config;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Данные сайта в памяти, по одному экземпляру на пару (сайт, поколение).
+ * Экземпляр загружается при первом захвате и живёт, пока его держит хотя бы один
+ * пользователь: обход сайта или индексация отдельной страницы. Каждый захват
+ * парный освобождению, поэтому загруженное по запросу одной страницы не остаётся
+ * в памяти после её индексации.
+ */
+public class GenerationCache<T> {
+
+    private final BiFunction<Integer, Integer, T> loader;
+    private final Map<Long, Holder<T>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param loader загрузка данных по id сайта и поколению
+     */
+    public GenerationCache(BiFunction<Integer, Integer, T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Загружает данные, если их ещё нет, и отмечает, что они используются.
+     * Каждому вызову должен соответствовать вызов {@link #release(int, int)}.
+     */
+    public T acquire(int siteId, int generation) {
+        return entries.compute(key(siteId, generation), (key, holder) -> {
+            if (holder == null) {
+                holder = new Holder<>(loader.apply(siteId, generation));
+            }
+            holder.holds++;
+            return holder;
+        }).value;
+    }
+
+    /**
+     * Снимает отметку использования.
+     *
+     * @return данные, если это было последнее использование и они удалены из памяти, иначе null
+     */
+    public T release(int siteId, int generation) {
+        List<T> evicted = new ArrayList<>(1);
+        entries.computeIfPresent(key(siteId, generation), (key, holder) -> {
+            if (--holder.holds > 0) {
+                return holder;
+            }
+            evicted.add(holder.value);
+            return null;
+        });
+        return evicted.isEmpty() ? null : evicted.get(0);
+    }
+
+    /**
+     * @return загруженные данные или null, если сейчас их никто не держит
+     */
+    public T get(int siteId, int generation) {
+        Holder<T> holder = entries.get(key(siteId, generation));
+        return holder == null ? null : holder.value;
+    }
+
+    /**
+     * Удаляет данные всех поколений сайта независимо от захватов, например при смене поколения.
+     *
+     * @return удалённые данные
+     */
+    public List<T> evict(int siteId) {
+        List<T> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Long, Holder<T>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Holder<T>> entry = iterator.next();
+            if ((int) (entry.getKey() >>> 32) == siteId) {
+                evicted.add(entry.getValue().value);
+                iterator.remove();
+            }
+        }
+        return evicted;
+    }
+
+    private static long key(int siteId, int generation) {
+        return ((long) siteId << 32) | (generation & 0xFFFFFFFFL);
+    }
+
+    private static final class Holder<T> {
+        private final T value;
+        private int holds;
+
+        private Holder(T value) {
+            this.value = value;
+        }
+    }
+}
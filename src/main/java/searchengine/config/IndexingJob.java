@@ -0,0 +1,126 @@
+package searchengine.config;
+
+import lombok.Getter;
+import searchengine.dto.indexing.SiteCrawlReport;
+import searchengine.model.IndexingMode;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая задача индексации. Хранит счётчики прогресса по всем сайтам
+ * и флаг отмены, который проверяют обходы сайтов.
+ */
+public class IndexingJob {
+
+    public enum State {
+        RUNNING,
+        CANCELLING,
+        CANCELLED,
+        COMPLETED
+    }
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+    @Getter
+    private final IndexingMode mode;
+    @Getter
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    @Getter
+    private volatile LocalDateTime finishedAt;
+    @Getter
+    private volatile State state = State.RUNNING;
+
+    private final Set<CrawlSession> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, SiteCrawlReport> finishedReports = new ConcurrentHashMap<>();
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong pagesIndexed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public IndexingJob(IndexingMode mode) {
+        this.mode = mode;
+    }
+
+    public void register(CrawlSession session) {
+        sessions.add(session);
+        if (isCancelled()) {
+            session.cancel();
+        }
+    }
+
+    public void unregister(CrawlSession session) {
+        finishedReports.put(session.getSite().getUrl(), session.report());
+        sessions.remove(session);
+    }
+
+    public List<SiteCrawlReport> getSiteReports() {
+        List<SiteCrawlReport> reports = new ArrayList<>(finishedReports.values());
+        for (CrawlSession session : sessions) {
+            if (!finishedReports.containsKey(session.getSite().getUrl())) {
+                reports.add(session.report());
+            }
+        }
+        return reports;
+    }
+
+    public void cancel() {
+        if (state == State.RUNNING) {
+            state = State.CANCELLING;
+        }
+        sessions.forEach(CrawlSession::cancel);
+    }
+
+    public boolean isCancelled() {
+        return state == State.CANCELLING || state == State.CANCELLED;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING || state == State.CANCELLING;
+    }
+
+    public void finish() {
+        state = isCancelled() ? State.CANCELLED : State.COMPLETED;
+        finishedAt = LocalDateTime.now();
+    }
+
+    public void pageFetched() {
+        pagesFetched.incrementAndGet();
+    }
+
+    public void pageIndexed() {
+        pagesIndexed.incrementAndGet();
+    }
+
+    public void error() {
+        errors.incrementAndGet();
+    }
+
+    public long getPagesFetched() {
+        return pagesFetched.get();
+    }
+
+    public long getPagesIndexed() {
+        return pagesIndexed.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getPagesQueued() {
+        return sessions.stream().mapToLong(CrawlSession::getQueued).sum();
+    }
+
+    public double getPagesPerSecond() {
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        double seconds = Duration.between(startedAt, end).toMillis() / 1000.0;
+        return seconds > 0 ? pagesFetched.get() / seconds : 0;
+    }
+}
@@ -0,0 +1,170 @@
+package searchengine.config;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Счётчик лемм с открытой адресацией: ключи и значения лежат в двух массивах,
+ * счётчики хранятся как int без упаковки. Для остального кода выглядит как
+ * обычный Map, упаковка значений происходит только при чтении через интерфейс Map.
+ */
+public class LemmaCounter extends AbstractMap<String, Integer> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private String[] keys;
+    private int[] values;
+    private int size;
+
+    public LemmaCounter() {
+        this(64);
+    }
+
+    public LemmaCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+    }
+
+    public void add(String key, int delta) {
+        int slot = slotOf(key);
+        if (keys[slot] == null) {
+            keys[slot] = key;
+            values[slot] = delta;
+            if (++size > keys.length * LOAD_FACTOR) {
+                resize();
+            }
+        } else {
+            values[slot] += delta;
+        }
+    }
+
+    public int getInt(String key) {
+        int slot = slotOf(key);
+        return keys[slot] == null ? 0 : values[slot];
+    }
+
+    public void forEachInt(ObjIntConsumer<String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && keys[slotOf((String) key)] != null;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = slotOf((String) key);
+        return keys[slot] == null ? null : values[slot];
+    }
+
+    @Override
+    public Integer put(String key, Integer value) {
+        int slot = slotOf(key);
+        Integer previous = keys[slot] == null ? null : values[slot];
+        if (previous == null) {
+            add(key, value);
+        } else {
+            values[slot] = value;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Integer> action) {
+        forEachInt(action::accept);
+    }
+
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Integer>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < keys.length && keys[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, Integer> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Integer> entry = new SimpleImmutableEntry<>(keys[next], values[next]);
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int slotOf(String key) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
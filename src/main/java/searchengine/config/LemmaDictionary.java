@@ -0,0 +1,46 @@
+package searchengine.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Словарь лемм одного сайта: текст леммы - id строки в таблице lemma.
+ * Заполняется из базы при старте обхода сайта и пополняется по мере появления новых лемм.
+ */
+public class LemmaDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public Integer get(String key) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return id;
+    }
+
+    public void put(String key, int id) {
+        ids.put(key, id);
+    }
+
+    public void remove(String key) {
+        ids.remove(key);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
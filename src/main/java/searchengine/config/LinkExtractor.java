@@ -0,0 +1,189 @@
+package searchengine.config;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Извлекает ссылки из тегов &lt;a href&gt; за один проход по байтам страницы,
+ * не строя DOM-дерево. Учитывает тег &lt;base href&gt;, пропускает комментарии
+ * и содержимое &lt;script&gt; и &lt;style&gt;.
+ */
+public final class LinkExtractor {
+
+    private LinkExtractor() {
+    }
+
+    public static List<String> extract(String html, String baseUrl) {
+        return extract(html.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, baseUrl);
+    }
+
+    public static List<String> extract(byte[] html, Charset charset, String baseUrl) {
+        List<String> links = new ArrayList<>();
+        URL base = toUrl(baseUrl);
+        int n = html.length;
+        int i = 0;
+
+        while (i < n) {
+            if (html[i] != '<') {
+                i++;
+                continue;
+            }
+            if (regionMatches(html, i, "<!--")) {
+                int end = indexOf(html, i + 4, "-->");
+                i = end < 0 ? n : end + 3;
+                continue;
+            }
+
+            int nameStart = i + 1;
+            int j = nameStart;
+            while (j < n && isNameChar(html[j])) {
+                j++;
+            }
+            int nameLength = j - nameStart;
+
+            boolean isScript = nameLength == 6 && regionMatches(html, nameStart, "script");
+            boolean isStyle = nameLength == 5 && regionMatches(html, nameStart, "style");
+            if (isScript || isStyle) {
+                String closing = isScript ? "</script" : "</style";
+                int end = indexOf(html, j, closing);
+                i = end < 0 ? n : end + closing.length();
+                continue;
+            }
+
+            boolean isAnchor = nameLength == 1 && (html[nameStart] | 0x20) == 'a';
+            boolean isBase = nameLength == 4 && regionMatches(html, nameStart, "base");
+            if (!isAnchor && !isBase) {
+                i = Math.max(j, i + 1);
+                continue;
+            }
+
+            String href = null;
+            while (j < n && html[j] != '>') {
+                while (j < n && isWhitespace(html[j])) {
+                    j++;
+                }
+                int attrStart = j;
+                while (j < n && !isWhitespace(html[j]) && html[j] != '=' && html[j] != '>') {
+                    j++;
+                }
+                int attrLength = j - attrStart;
+                while (j < n && isWhitespace(html[j])) {
+                    j++;
+                }
+                if (attrLength == 0 && j < n && html[j] != '>') {
+                    j++;
+                    continue;
+                }
+                if (j >= n || html[j] != '=') {
+                    continue;
+                }
+                j++;
+                while (j < n && isWhitespace(html[j])) {
+                    j++;
+                }
+                int valueStart;
+                int valueEnd;
+                if (j < n && (html[j] == '"' || html[j] == '\'')) {
+                    byte quote = html[j];
+                    valueStart = j + 1;
+                    valueEnd = valueStart;
+                    while (valueEnd < n && html[valueEnd] != quote) {
+                        valueEnd++;
+                    }
+                    j = Math.min(n, valueEnd + 1);
+                } else {
+                    valueStart = j;
+                    while (j < n && !isWhitespace(html[j]) && html[j] != '>') {
+                        j++;
+                    }
+                    valueEnd = j;
+                }
+                if (attrLength == 4 && regionMatches(html, attrStart, "href")) {
+                    href = decodeEntities(new String(html, valueStart, valueEnd - valueStart, charset).trim());
+                }
+            }
+            i = j + 1;
+
+            if (href == null || href.isEmpty()) {
+                continue;
+            }
+            if (isBase) {
+                URL resolvedBase = resolve(base, href);
+                if (resolvedBase != null) {
+                    base = resolvedBase;
+                }
+                continue;
+            }
+            if (href.startsWith("#")) {
+                continue;
+            }
+            URL resolved = resolve(base, href);
+            if (resolved != null && resolved.getProtocol().startsWith("http")) {
+                links.add(resolved.toString());
+            }
+        }
+        return links;
+    }
+
+    private static URL resolve(URL base, String href) {
+        try {
+            return base != null ? new URL(base, href) : new URL(href);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private static URL toUrl(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&amp;", "&")
+                .replace("&#38;", "&")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&apos;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">");
+    }
+
+    private static boolean regionMatches(byte[] data, int offset, String ascii) {
+        if (offset + ascii.length() > data.length) {
+            return false;
+        }
+        for (int k = 0; k < ascii.length(); k++) {
+            if ((data[offset + k] | 0x20) != (ascii.charAt(k) | 0x20)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, String ascii) {
+        for (int k = from; k <= data.length - ascii.length(); k++) {
+            if (regionMatches(data, k, ascii)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNameChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+}
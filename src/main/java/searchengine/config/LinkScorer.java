@@ -0,0 +1,58 @@
+package searchengine.config;
+
+import java.net.URI;
+import java.util.regex.Pattern;
+
+/**
+ * Оценка ссылки для очереди обхода. Штрафуются признаки бесконечных разделов:
+ * параметры запроса, глубокие пути, даты в пути (календари, архивы) и номера
+ * страниц листинга. Чем выше оценка, тем раньше адрес будет загружен.
+ */
+public final class LinkScorer {
+
+    public static final int MAX_SCORE = 100;
+
+    private static final Pattern DATE_SEGMENT = Pattern.compile("(19|20)\\d{2}([-_/.]\\d{1,2}){0,2}");
+    private static final Pattern PAGINATION = Pattern.compile("(?i)(page|p|pagen_\\d+|start|offset)[-_=]?\\d+");
+    private static final Pattern CALENDAR = Pattern.compile("(?i)(calendar|kalendar|archive|arhiv|sort|order|filter)");
+
+    private LinkScorer() {
+    }
+
+    public static int score(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        int score = MAX_SCORE;
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        String query = uri.getRawQuery();
+
+        if (query != null && !query.isEmpty()) {
+            score -= 10 * query.split("&").length;
+            if (PAGINATION.matcher(query).find()) {
+                score -= 15;
+            }
+        }
+        int segments = 0;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            segments++;
+            if (DATE_SEGMENT.matcher(segment).matches()) {
+                score -= 20;
+            }
+            if (PAGINATION.matcher(segment).matches()) {
+                score -= 15;
+            }
+        }
+        score -= 5 * Math.max(0, segments - 2);
+        if (CALENDAR.matcher(path).find() || (query != null && CALENDAR.matcher(query).find())) {
+            score -= 20;
+        }
+        return Math.max(0, score);
+    }
+}
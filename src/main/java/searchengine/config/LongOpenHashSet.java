@@ -0,0 +1,97 @@
+package searchengine.config;
+
+/**
+ * Множество значений long с открытой адресацией и линейным пробированием.
+ * Хранит значения в примитивном массиве без упаковки в объекты.
+ * Значение 0 используется как признак пустой ячейки и хранится отдельным флагом.
+ */
+public class LongOpenHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+    private int resizeThreshold;
+
+    public LongOpenHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = indexFor(value, mask);
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        if (++size > resizeThreshold) {
+            resize(table.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int index = indexFor(value, mask);
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryFootprintBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldTable = table;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (long value : oldTable) {
+            if (value != 0) {
+                int index = indexFor(value, mask);
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    private static int indexFor(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,89 @@
+package searchengine.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру кэш разбора слов, общий для индексации, разбора
+ * поискового запроса и построения сниппетов. Разделён на сегменты с отдельными
+ * блокировками; в каждом сегменте при переполнении вытесняется давно не
+ * использованное слово. Разбор выполняется вне блокировки, поэтому одно слово
+ * изредка может быть разобрано дважды параллельными потоками.
+ */
+public class MorphologyCache {
+
+    private static final int SEGMENTS = 32;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MorphologyCache(int maxSize) {
+        int segmentSize = Math.max(16, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public WordForms get(String word, Function<String, WordForms> loader) {
+        Segment segment = segments[(word.hashCode() & 0x7fffffff) % SEGMENTS];
+        WordForms forms;
+        synchronized (segment) {
+            forms = segment.get(word);
+        }
+        if (forms != null) {
+            hits.increment();
+            return forms;
+        }
+        misses.increment();
+        forms = loader.apply(word);
+        synchronized (segment) {
+            segment.put(word, forms);
+        }
+        return forms;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return "слов " + size() + ", попаданий " + hitCount + ", промахов " + getMisses()
+                + (total > 0 ? String.format(", доля попаданий %.1f%%", hitCount * 100.0 / total) : "");
+    }
+
+    private static final class Segment extends LinkedHashMap<String, WordForms> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WordForms> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package searchengine.config;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import searchengine.model.Page;
+
+/**
+ * Заголовок и видимый текст страницы. Извлекаются один раз при индексации:
+ * по заголовку и тексту собираются леммы, а поиск берёт заголовок и текст для сниппета
+ * из полей страницы, не разбирая HTML заново.
+ */
+public final class PageText {
+
+    public static final int MAX_TITLE_LENGTH = 512;
+
+    private final String title;
+    private final String text;
+
+    private PageText(String title, String text) {
+        this.title = title;
+        this.text = text;
+    }
+
+    public static PageText of(Document document) {
+        String title = document.title().trim();
+        if (title.length() > MAX_TITLE_LENGTH) {
+            title = title.substring(0, MAX_TITLE_LENGTH);
+        }
+        String text = document.body() != null ? document.body().text() : document.text();
+        return new PageText(title, text);
+    }
+
+    public static PageText parse(String html) {
+        return of(Jsoup.parse(html == null ? "" : html));
+    }
+
+    /**
+     * Текст из полей страницы; для страниц, сохранённых до появления этих полей, - из HTML.
+     */
+    public static PageText of(Page page) {
+        if (page.getText() != null) {
+            return new PageText(page.getTitle() == null ? "" : page.getTitle(), page.getText());
+        }
+        return parse(page.getContent());
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Текст для лемматизации: заголовок вместе с текстом страницы, чтобы страница
+     * находилась и по словам, которые есть только в title. Заголовок в поле text не хранится.
+     */
+    public String getIndexedText() {
+        if (title.isEmpty()) {
+            return text;
+        }
+        return text == null || text.isEmpty() ? title : title + "\n" + text;
+    }
+}
@@ -0,0 +1,25 @@
+package searchengine.config;
+
+import lombok.Getter;
+import searchengine.model.Site;
+
+import java.util.Map;
+
+/**
+ * Загруженная страница с уже собранными леммами, готовая к записи в базу.
+ * Леммы не собираются (null) для ответа 304 и для вероятной копии уже
+ * проиндексированной страницы.
+ */
+@Getter
+public class PreparedPage {
+
+    private final Site site;
+    private final FetchResult fetchResult;
+    private final Map<String, Integer> lemmas;
+
+    public PreparedPage(Site site, FetchResult fetchResult, Map<String, Integer> lemmas) {
+        this.site = site;
+        this.fetchResult = fetchResult;
+        this.lemmas = lemmas;
+    }
+}
@@ -0,0 +1,180 @@
+package searchengine.config;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Правила robots.txt для одного хоста: разрешающие и запрещающие шаблоны
+ * группы нашего робота (или группы "*"), Crawl-delay и адреса карт сайта.
+ * Из подходящих шаблонов побеждает самый длинный, при равной длине - Allow.
+ */
+public final class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), null, List.of());
+
+    private final List<Rule> rules;
+    private final Double crawlDelaySeconds;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, Double crawlDelaySeconds, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelaySeconds = crawlDelaySeconds;
+        this.sitemaps = sitemaps;
+    }
+
+    /**
+     * @param robotName имя робота без версии, например HeliontSearchBot
+     */
+    public static RobotsRules parse(String text, String robotName) {
+        String robot = robotName == null ? "" : robotName.toLowerCase(Locale.ROOT);
+        List<String> sitemaps = new ArrayList<>();
+        Group wildcardGroup = null;
+        Group robotGroup = null;
+        Group current = null;
+        boolean readingAgents = false;
+
+        for (String rawLine : text.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (field) {
+                case "user-agent" -> {
+                    if (!readingAgents) {
+                        current = new Group();
+                        readingAgents = true;
+                    }
+                    String agent = value.toLowerCase(Locale.ROOT);
+                    if (agent.equals("*")) {
+                        if (wildcardGroup == null) {
+                            wildcardGroup = current;
+                        }
+                    } else if (!robot.isEmpty() && robot.equals(agent) && robotGroup == null) {
+                        robotGroup = current;
+                    }
+                }
+                case "allow", "disallow" -> {
+                    readingAgents = false;
+                    if (current != null && !value.isEmpty()) {
+                        current.rules.add(new Rule(value, field.equals("allow")));
+                    }
+                }
+                case "crawl-delay" -> {
+                    readingAgents = false;
+                    if (current != null) {
+                        try {
+                            current.crawlDelay = Double.parseDouble(value);
+                        } catch (NumberFormatException e) {
+                            // некорректное значение игнорируется
+                        }
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> readingAgents = false;
+            }
+        }
+
+        Group group = robotGroup != null ? robotGroup : wildcardGroup;
+        if (group == null) {
+            return new RobotsRules(List.of(), null, Collections.unmodifiableList(sitemaps));
+        }
+        return new RobotsRules(List.copyOf(group.rules), group.crawlDelay, Collections.unmodifiableList(sitemaps));
+    }
+
+    public boolean isAllowed(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path;
+        try {
+            URI uri = URI.create(url);
+            path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null
+                    || rule.pattern.length() > best.pattern.length()
+                    || (rule.pattern.length() == best.pattern.length() && rule.allow))) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    public Double getCrawlDelaySeconds() {
+        return crawlDelaySeconds;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static final class Group {
+        private final List<Rule> rules = new ArrayList<>();
+        private Double crawlDelay;
+    }
+
+    private static final class Rule {
+        private final String pattern;
+        private final boolean allow;
+
+        private Rule(String pattern, boolean allow) {
+            this.pattern = pattern;
+            this.allow = allow;
+        }
+
+        /**
+         * Шаблон сопоставляется с началом пути; "*" - любая последовательность символов,
+         * "$" в конце - конец пути.
+         */
+        private boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            String body = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            return matches(body, 0, path, 0, anchored);
+        }
+
+        private static boolean matches(String pattern, int p, String path, int s, boolean anchored) {
+            while (p < pattern.length()) {
+                char c = pattern.charAt(p);
+                if (c == '*') {
+                    while (p < pattern.length() && pattern.charAt(p) == '*') {
+                        p++;
+                    }
+                    if (p == pattern.length()) {
+                        return true;
+                    }
+                    for (int k = s; k <= path.length(); k++) {
+                        if (matches(pattern, p, path, k, anchored)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (s >= path.length() || path.charAt(s) != c) {
+                    return false;
+                }
+                p++;
+                s++;
+            }
+            return !anchored || s == path.length();
+        }
+    }
+}
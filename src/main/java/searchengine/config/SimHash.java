@@ -0,0 +1,129 @@
+package searchengine.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 64-битный SimHash видимого текста страницы по шинглам из трёх слов.
+ * У почти одинаковых страниц (версия для печати, другая сортировка, параметры сессии)
+ * отпечатки отличаются в нескольких битах, поэтому близость страниц оценивается
+ * расстоянием Хэмминга между отпечатками.
+ * Меню, шапка, подвал и боковые колонки в отпечаток не входят: общий шаблон сайта
+ * сближал бы отпечатки разных страниц с коротким основным текстом.
+ */
+public final class SimHash {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final String[] SKIPPED_ELEMENTS = {"script", "style", "nav", "header", "footer", "aside"};
+
+    private SimHash() {
+    }
+
+    public static long compute(String html) {
+        List<String> words = visibleWords(html);
+        if (words.isEmpty()) {
+            return 0;
+        }
+        int[] weights = new int[64];
+        int shingles = Math.max(1, words.size() - SHINGLE_SIZE + 1);
+        for (int i = 0; i < shingles; i++) {
+            long hash = 0xcbf29ce484222325L;
+            for (int k = i; k < Math.min(words.size(), i + SHINGLE_SIZE); k++) {
+                String word = words.get(k);
+                for (int c = 0; c < word.length(); c++) {
+                    hash ^= word.charAt(c);
+                    hash *= 0x100000001b3L;
+                }
+                hash ^= ' ';
+                hash *= 0x100000001b3L;
+            }
+            hash = mix(hash);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Слова текста вне тегов; комментарии и содержимое script, style, nav, header,
+     * footer и aside пропускаются.
+     */
+    static List<String> visibleWords(String html) {
+        List<String> words = new ArrayList<>();
+        if (html == null) {
+            return words;
+        }
+        String lower = html.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int n = lower.length();
+        int i = 0;
+        while (i < n) {
+            char c = lower.charAt(i);
+            if (c == '<') {
+                flush(word, words);
+                int end;
+                if (lower.startsWith("<!--", i)) {
+                    end = lower.indexOf("-->", i + 4);
+                    i = end < 0 ? n : end + 3;
+                } else if ((end = skippedElementEnd(lower, i)) >= 0) {
+                    i = end;
+                } else {
+                    end = lower.indexOf('>', i);
+                    i = end < 0 ? n : end + 1;
+                }
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else {
+                flush(word, words);
+            }
+            i++;
+        }
+        flush(word, words);
+        return words;
+    }
+
+    /**
+     * @return позиция после закрывающего тега пропускаемого элемента, который открывается в позиции i, или -1
+     */
+    private static int skippedElementEnd(String lower, int i) {
+        for (String name : SKIPPED_ELEMENTS) {
+            int after = i + 1 + name.length();
+            if (lower.startsWith(name, i + 1) && (after == lower.length() || !Character.isLetterOrDigit(lower.charAt(after)))) {
+                String closing = "</" + name;
+                int end = lower.indexOf(closing, after);
+                return end < 0 ? lower.length() : end + closing.length();
+            }
+        }
+        return -1;
+    }
+
+    private static void flush(StringBuilder word, List<String> words) {
+        if (word.length() > 0) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
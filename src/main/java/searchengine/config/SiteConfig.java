@@ -3,9 +3,16 @@ package searchengine.config;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 public class SiteConfig {
     private String url;
     private String name;
+    private Integer maxConcurrentRequests;
+    private Double requestsPerSecond;
+    private Integer maxDepth;
+    private Integer maxPages;
+    private Duration maxDuration;
 }
@@ -0,0 +1,47 @@
+package searchengine.config;
+
+import lombok.Getter;
+import searchengine.dto.indexing.PipelineStageStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Счётчики одной стадии конвейера индексации: число обработанных страниц,
+ * суммарное время работы и размер входной очереди.
+ */
+public class StageMetrics {
+
+    @Getter
+    private final String name;
+    private final int threads;
+    private final IntSupplier queueSize;
+    private final long startedAtNanos = System.nanoTime();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    public StageMetrics(String name, int threads, IntSupplier queueSize) {
+        this.name = name;
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    public void record(int items, long nanos) {
+        processed.addAndGet(items);
+        busyNanos.addAndGet(nanos);
+    }
+
+    public PipelineStageStats snapshot() {
+        long count = processed.get();
+        double seconds = (System.nanoTime() - startedAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        PipelineStageStats stats = new PipelineStageStats();
+        stats.setName(name);
+        stats.setThreads(threads);
+        stats.setQueued(queueSize.getAsInt());
+        stats.setProcessed(count);
+        stats.setAvgMillis(count > 0 ? busyNanos.get() / 1e6 / count : 0);
+        stats.setPerSecond(seconds > 0 ? count / seconds : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,78 @@
+package searchengine.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Разбор текста на слова за один проход без регулярных выражений и промежуточных
+ * копий текста. Слово - непрерывная последовательность букв одного алфавита
+ * (кириллица или латиница); буквы приводятся к нижнему регистру по мере чтения.
+ * Цифры, знаки и буквы других алфавитов разделяют слова.
+ */
+public final class TextTokenizer {
+
+    private static final int NONE = 0;
+    private static final int CYRILLIC = 1;
+    private static final int LATIN = 2;
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private TextTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, Consumer<String> sink) {
+        if (text == null) {
+            return;
+        }
+        char[] word = new char[MAX_WORD_LENGTH];
+        int length = 0;
+        int script = NONE;
+        boolean overflow = false;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            char lower = toLower(c);
+            int charScript = scriptOf(lower);
+            if (charScript != NONE && (charScript == script || length == 0)) {
+                script = charScript;
+                if (length < MAX_WORD_LENGTH) {
+                    word[length++] = lower;
+                } else {
+                    overflow = true;
+                }
+                continue;
+            }
+            if (length > 0 && !overflow) {
+                sink.accept(new String(word, 0, length));
+            }
+            length = 0;
+            overflow = false;
+            script = NONE;
+            if (charScript != NONE) {
+                script = charScript;
+                word[length++] = lower;
+            }
+        }
+    }
+
+    private static char toLower(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c >= 'А' && c <= 'Я') {
+            return (char) (c + ('а' - 'А'));
+        }
+        if (c == 'Ё') {
+            return 'ё';
+        }
+        return c;
+    }
+
+    private static int scriptOf(char c) {
+        if ((c >= 'а' && c <= 'я') || c == 'ё') {
+            return CYRILLIC;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return LATIN;
+        }
+        return NONE;
+    }
+}
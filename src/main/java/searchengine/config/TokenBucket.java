@@ -0,0 +1,57 @@
+package searchengine.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничитель частоты запросов: токены пополняются с заданной скоростью,
+ * каждый запрос расходует один токен. Нулевая или отрицательная скорость
+ * означает отсутствие ограничения.
+ */
+public class TokenBucket {
+
+    private double ratePerSecond;
+    private double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.lastRefillNanos = System.nanoTime();
+        setRate(ratePerSecond, capacity);
+        this.tokens = this.capacity;
+    }
+
+    /**
+     * @return 0, если токен получен, иначе время в наносекундах до появления следующего токена
+     */
+    public synchronized long tryConsume() {
+        if (ratePerSecond <= 0) {
+            return 0;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / ratePerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public synchronized void setRate(double ratePerSecond, double capacity) {
+        refill();
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = Math.min(tokens, this.capacity);
+    }
+
+    public synchronized double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (ratePerSecond > 0) {
+            double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(capacity, tokens + elapsedSeconds * ratePerSecond);
+        }
+        lastRefillNanos = now;
+    }
+}
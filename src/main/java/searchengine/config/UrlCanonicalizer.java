@@ -0,0 +1,167 @@
+package searchengine.config;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Приводит ссылки к каноническому виду до постановки в очередь обхода:
+ * схема и хост в нижнем регистре, без порта по умолчанию, фрагмента,
+ * служебных параметров запроса и завершающего слэша. Также отсеивает
+ * ссылки на другие хосты и на файлы, которые не являются HTML-страницами.
+ */
+public class UrlCanonicalizer {
+
+    private final List<String> strippedParams;
+    private final List<String> strippedParamPrefixes;
+    private final Set<String> skippedExtensions;
+
+    public UrlCanonicalizer(List<String> stripQueryParams, List<String> skipExtensions) {
+        this.strippedParams = new ArrayList<>();
+        this.strippedParamPrefixes = new ArrayList<>();
+        for (String param : stripQueryParams) {
+            String name = param.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith("*")) {
+                strippedParamPrefixes.add(name.substring(0, name.length() - 1));
+            } else if (!name.isEmpty()) {
+                strippedParams.add(name);
+            }
+        }
+        this.skippedExtensions = skipExtensions.stream()
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return канонический адрес или null, если ссылка не является http(s)-адресом
+     */
+    public String canonicalize(String url) {
+        URI uri = parse(url);
+        if (uri == null || uri.getScheme() == null || uri.getHost() == null) {
+            return null;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+
+        StringBuilder canonical = new StringBuilder(scheme).append("://")
+                .append(uri.getHost().toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port != -1 && !(scheme.equals("http") && port == 80) && !(scheme.equals("https") && port == 443)) {
+            canonical.append(':').append(port);
+        }
+
+        canonical.append(normalizePath(uri.getRawPath()));
+
+        String query = filterQuery(uri.getRawQuery());
+        if (!query.isEmpty()) {
+            canonical.append('?').append(query);
+        }
+        return canonical.toString();
+    }
+
+    public boolean isHtmlCandidate(String canonicalUrl) {
+        String path = URI.create(canonicalUrl).getRawPath();
+        String lastSegment = path.substring(path.lastIndexOf('/') + 1);
+        int dot = lastSegment.lastIndexOf('.');
+        if (dot < 0) {
+            return true;
+        }
+        return !skippedExtensions.contains(lastSegment.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Ключ страницы в пределах сайта (поле page.path): путь канонического адреса вместе
+     * с оставшимися параметрами запроса. Как и в очереди обхода, /list?page=1
+     * и /list?page=2 - разные страницы.
+     */
+    public static String pageKey(String canonicalUrl) {
+        URI uri = URI.create(canonicalUrl);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    public static boolean isSameHost(String canonicalUrl, String host) {
+        String urlHost = URI.create(canonicalUrl).getHost();
+        return urlHost != null && host != null && siteHost(urlHost).equals(siteHost(host));
+    }
+
+    private String normalizePath(String rawPath) {
+        if (rawPath == null || rawPath.isEmpty()) {
+            return "/";
+        }
+        String path = URI.create(rawPath.replaceAll("/{2,}", "/")).normalize().getRawPath();
+        while (path.startsWith("/..")) {
+            path = path.substring(3);
+        }
+        if (path.isEmpty()) {
+            return "/";
+        }
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private String filterQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> kept = new ArrayList<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = (eq < 0 ? pair : pair.substring(0, eq)).toLowerCase(Locale.ROOT);
+            if (!isStripped(name)) {
+                kept.add(pair);
+            }
+        }
+        return String.join("&", kept);
+    }
+
+    private boolean isStripped(String name) {
+        if (strippedParams.contains(name)) {
+            return true;
+        }
+        for (String prefix : strippedParamPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static URI parse(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        try {
+            return new URI(url.trim());
+        } catch (URISyntaxException e) {
+            try {
+                URL parsed = new URL(url.trim());
+                return new URI(parsed.getProtocol(), null, parsed.getHost(), parsed.getPort(), parsed.getPath(), parsed.getQuery(), null);
+            } catch (MalformedURLException | URISyntaxException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Хост без учёта регистра и префикса www.: example.com и www.example.com - один сайт.
+     */
+    public static String siteHost(String host) {
+        String lower = host.toLowerCase(Locale.ROOT);
+        return lower.startsWith("www.") ? lower.substring(4) : lower;
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine.config;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Множество посещённых адресов одного обхода. Вместо строк хранятся
+ * 64-битные отпечатки URL; при включённом фильтре Блума большинство
+ * новых адресов отсеивается без обращения к хеш-таблице.
+ */
+public class VisitedUrlSet {
+
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    private LongOpenHashSet fingerprints;
+    private BloomFilter bloomFilter;
+
+    public VisitedUrlSet(int expectedUrls, boolean useBloomFilter) {
+        this.fingerprints = new LongOpenHashSet(expectedUrls);
+        this.bloomFilter = useBloomFilter ? new BloomFilter(expectedUrls, BLOOM_FALSE_POSITIVE_RATE) : null;
+    }
+
+    /**
+     * @return true, если адрес ещё не встречался в этом обходе
+     */
+    public synchronized boolean add(String url) {
+        long fingerprint = fingerprint(url);
+        if (bloomFilter != null) {
+            if (!bloomFilter.mightContain(fingerprint)) {
+                bloomFilter.put(fingerprint);
+                fingerprints.add(fingerprint);
+                return true;
+            }
+        }
+        return fingerprints.add(fingerprint);
+    }
+
+    public synchronized boolean contains(String url) {
+        long fingerprint = fingerprint(url);
+        if (bloomFilter != null && !bloomFilter.mightContain(fingerprint)) {
+            return false;
+        }
+        return fingerprints.contains(fingerprint);
+    }
+
+    public synchronized int size() {
+        return fingerprints.size();
+    }
+
+    public synchronized long memoryFootprintBytes() {
+        return fingerprints.memoryFootprintBytes() + (bloomFilter != null ? bloomFilter.memoryFootprintBytes() : 0);
+    }
+
+    /**
+     * Освобождает память после завершения обхода сайта.
+     */
+    public synchronized void release() {
+        fingerprints = new LongOpenHashSet(0);
+        bloomFilter = null;
+    }
+
+    /**
+     * FNV-1a по байтам UTF-8 с финальным перемешиванием из MurmurHash3.
+     */
+    public static long fingerprint(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,31 @@
+package searchengine.config;
+
+import java.util.List;
+
+/**
+ * Результат морфологического разбора слова: нормальные формы и признак
+ * служебной части речи (такие слова в индекс не попадают).
+ */
+public final class WordForms {
+
+    public static final WordForms FUNCTION_WORD = new WordForms(List.of(), true);
+
+    private final List<String> normalForms;
+    private final boolean functionWord;
+
+    public WordForms(List<String> normalForms, boolean functionWord) {
+        this.normalForms = List.copyOf(normalForms);
+        this.functionWord = functionWord;
+    }
+
+    /**
+     * Неизменяемый список: один и тот же экземпляр отдаётся всем потокам.
+     */
+    public List<String> getNormalForms() {
+        return normalForms;
+    }
+
+    public boolean isFunctionWord() {
+        return functionWord;
+    }
+}
@@ -4,9 +4,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import searchengine.dto.indexing.IndexingStatusResponse;
 import searchengine.dto.search.Response;
 import searchengine.dto.search.SearchResultsResponse;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.model.IndexingMode;
 import searchengine.services.interfaces.IndexPageService;
 import searchengine.services.interfaces.IndexingService;
 import searchengine.services.interfaces.SearchService;
@@ -60,8 +62,17 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<Response> startIndexing() {
-        return ResponseEntity.ok(indexingService.startIndexing());
+    public ResponseEntity<Response> startIndexing(@RequestParam(defaultValue = "FULL") IndexingMode mode) {
+        return ResponseEntity.ok(indexingService.startIndexing(mode));
+    }
+
+    @GetMapping("/indexingStatus")
+    public ResponseEntity<IndexingStatusResponse> indexingStatus(@RequestParam(required = false) String jobId) {
+        IndexingStatusResponse response = indexingService.getStatus(jobId);
+        if (!response.isResult()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/stopIndexing")
@@ -0,0 +1,23 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IndexingStatusResponse {
+    private boolean result;
+    private String error;
+    private String jobId;
+    private String mode;
+    private String state;
+    private long startedAt;
+    private Long finishedAt;
+    private long pagesFetched;
+    private long pagesQueued;
+    private long pagesIndexed;
+    private long errors;
+    private double pagesPerSecond;
+    private List<SiteCrawlReport> sites;
+    private List<PipelineStageStats> pipeline;
+}
@@ -0,0 +1,13 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class PipelineStageStats {
+    private String name;
+    private int threads;
+    private int queued;
+    private long processed;
+    private double avgMillis;
+    private double perSecond;
+}
@@ -0,0 +1,15 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class SiteCrawlReport {
+    private String url;
+    private String budget;
+    private int pagesQueued;
+    private int pagesFetched;
+    private int cutByDepth;
+    private int cutByPageLimit;
+    private int cutByTime;
+    private String stopReason;
+}
@@ -1,5 +1,6 @@
 package searchengine.dto.search;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 @Data
@@ -7,6 +8,8 @@ public class Response {
 
     private final boolean result;
     private String message;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String jobId;
 
     public Response(boolean result) {
         this.result = result;
@@ -13,7 +13,9 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma", uniqueConstraints = {
+        @UniqueConstraint(name = "UK_lemma_site_generation_lemma", columnNames = {"site_id", "generation", "lemma"})
+})
 public class Lemma {
 
     @Column(name = "id", nullable = false)
@@ -32,6 +34,9 @@ public class Lemma {
     @Column(nullable = false)
     private Integer frequency;
 
+    @Column(name = "generation", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int generation;
+
     @OneToMany(mappedBy = "lemma", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<PageLemma> pageLemmas;
 
@@ -1,21 +1,24 @@
 package searchengine.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import searchengine.config.ContentCodec;
 
 import javax.persistence.*;
 import javax.persistence.Index;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Entity
 @Table(name = "page",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"path", "site_id"}),
+        uniqueConstraints = @UniqueConstraint(name = "UK_page_site_generation_path", columnNames = {"site_id", "generation", "path"}),
         indexes = {@Index(name = "IDX_path", columnList = "path")}) // Индекс для поля path
 @AllArgsConstructor
 @NoArgsConstructor
@@ -34,20 +37,82 @@ public class Page {
     @Column(name = "path", length = 512, nullable = false)
     private String path;
 
+    @Column(name = "generation", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int generation;
+
     @Column(name = "status_code", nullable = false)
     private int code;
 
-    @Column(name = "url", nullable = false, unique = true)
+    @Column(name = "url", nullable = false)
     private String url;
 
+    /**
+     * HTML страницы, сжатый {@link ContentCodec}. Читается и записывается через
+     * {@link #getContent()} и {@link #setContent(String)}.
+     */
+    @Lob
+    @Column(name = "content_data", columnDefinition = "MEDIUMBLOB")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private byte[] contentData;
+
+    /**
+     * Несжатый HTML страниц, сохранённых до перехода на content_data; переносится
+     * в сжатый вид при запуске приложения.
+     */
+    @Lob
+    @Column(name = "content", columnDefinition = "MEDIUMTEXT")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String legacyContent;
+
+    @Column(name = "compression_ratio")
+    private Float compressionRatio;
+
+    @Column(name = "title", length = 512)
+    private String title;
+
+    /**
+     * Видимый текст страницы без разметки; по нему строятся индекс и сниппеты.
+     */
     @Lob
-    @Column(name = "content", columnDefinition = "MEDIUMTEXT", nullable = false)
-    private String content;
+    @Column(name = "text", columnDefinition = "MEDIUMTEXT")
+    private String text;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "simhash")
+    private Long simHash;
+
+    /**
+     * id страницы с тем же или почти тем же содержимым; такая страница хранится
+     * как псевдоним оригинала и не индексируется.
+     */
+    @Column(name = "duplicate_of")
+    private Integer duplicateOfId;
 
     @OneToMany(mappedBy = "page", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<PageLemma> pageLemmas;
 
 
+    public String getContent() {
+        return contentData != null ? ContentCodec.decompress(contentData) : legacyContent;
+    }
+
+    public void setContent(String content) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        contentData = ContentCodec.compress(raw);
+        compressionRatio = ContentCodec.ratio(raw.length, contentData.length);
+        legacyContent = null;
+    }
+
     @Override
     public String toString() {
         return "Page{id=" + id + ", url='" + url + "', path='" + path + "'}";
@@ -36,6 +36,18 @@ public class Site {
     @OneToMany(mappedBy = "site", fetch = FetchType.LAZY)
     private List<Page> pages;
 
+    /**
+     * Поколение индекса (страницы и леммы), по которому идёт поиск.
+     */
+    @Column(name = "generation", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int generation;
+
+    /**
+     * Поколение, которое строится полной переиндексацией; null, если сборки нет.
+     */
+    @Column(name = "build_generation")
+    private Integer buildGeneration;
+
     public Site() {
     }
 
@@ -46,4 +58,11 @@ public class Site {
         this.statusEnum = Status.INDEXING;
         this.error = "";
     }
+
+    /**
+     * Поколение, в которое записываются загружаемые страницы.
+     */
+    public int getWriteGeneration() {
+        return buildGeneration != null ? buildGeneration : generation;
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 
 import searchengine.model.Lemma;
 import searchengine.model.Site;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -14,26 +15,29 @@ import java.util.List;
 @Repository
 public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
 
-    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma AND l.site IN :sites")
+    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma AND l.site IN :sites AND l.generation = l.site.generation")
     List<Lemma> findByLemmaAndSites(@Param("lemma") String lemma, @Param("sites") List<Site> sites);
 
-    @Query("SELECT COUNT(l) FROM Lemma l")
+    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.generation = l.site.generation")
     int countAllLemmas();
 
-    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.site.id = :siteId")
+    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.site.id = :siteId AND l.generation = l.site.generation")
     int countBySiteId(@Param("siteId") Integer siteId);
 
-    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma")
+    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma AND l.generation = l.site.generation")
     List<Lemma> findByLemma(@Param("lemma") String lemma);
 
 
-    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.lemma = :lemma AND l.site IN :sites")
+    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.lemma = :lemma AND l.site IN :sites AND l.generation = l.site.generation")
     int countByLemmaAndSites(@Param("lemma") String lemma, @Param("sites") List<Site> sites);
 
-    @Query("SELECT l.lemma, COUNT(l.id) FROM Lemma l WHERE l.lemma IN :lemmas GROUP BY l.lemma")
+    @Query("SELECT l.lemma, COUNT(l.id) FROM Lemma l WHERE l.lemma IN :lemmas AND l.generation = l.site.generation GROUP BY l.lemma")
     List<Object[]> findLemmaFrequencies(@Param("lemmas") List<String> lemmas);
 
-    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma AND l.site = :site")
+    @Query("SELECT l.id FROM Lemma l WHERE l.lemma IN :lemmas AND l.site.id IN :siteIds AND l.generation = l.site.generation")
+    List<Integer> findIdsByLemmasAndSites(@Param("lemmas") Collection<String> lemmas, @Param("siteIds") List<Integer> siteIds);
+
+    @Query("SELECT l FROM Lemma l WHERE l.lemma = :lemma AND l.site = :site AND l.generation = l.site.generation")
     List<Lemma> findByLemmaAndSite(@Param("lemma") String lemma, @Param("site") Site site);
 
 
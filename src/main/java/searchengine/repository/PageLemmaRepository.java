@@ -11,30 +11,36 @@ import searchengine.model.Site;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 
 @Repository
 public interface PageLemmaRepository extends JpaRepository<PageLemma, Integer> {
 
-    @Query("SELECT i.rank FROM PageLemma i WHERE i.page.id = :pageId AND i.lemma.lemma = :lemma")
-    Optional<Float> getRankForPage(@Param("pageId") int pageId, @Param("lemma") String lemma);
+    /**
+     * Абсолютная релевантность страниц: сумма rank найденных лемм по каждой странице.
+     */
+    @Query("SELECT pl.page.id, SUM(pl.rank) FROM PageLemma pl " +
+            "WHERE pl.lemma.id IN :lemmaIds AND pl.page.site.id IN :siteIds GROUP BY pl.page.id")
+    List<Object[]> sumRanksByPage(@Param("lemmaIds") List<Integer> lemmaIds, @Param("siteIds") List<Integer> siteIds);
+
+    @Query("SELECT i FROM PageLemma i JOIN FETCH i.lemma WHERE i.page = :page")
+    List<PageLemma> findByPage(@Param("page") Page page);
 
     @Query("SELECT i FROM PageLemma i WHERE i.lemma = :lemma AND i.page = :page")
     List<PageLemma> findByLemmaAndPage(@Param("lemma") Lemma lemma, @Param("page") Page page);
 
 
-    @Query("SELECT COUNT(p) FROM Page p WHERE p.site IN :sites")
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.site IN :sites AND p.generation = p.site.generation")
     long countTotalPages(@Param("sites") List<Site> sites);
 
     @Query("SELECT pl.lemma.lemma, COUNT(DISTINCT pl.page) FROM PageLemma pl " +
-            "WHERE pl.lemma.lemma IN :lemmas GROUP BY pl.lemma.lemma")
+            "WHERE pl.lemma.lemma IN :lemmas AND pl.page.generation = pl.page.site.generation GROUP BY pl.lemma.lemma")
     List<Object[]> countPagesForLemmas(@Param("lemmas") List<String> lemmas);
 
     @Query("SELECT DISTINCT p FROM Page p " +
             "JOIN p.pageLemmas i " +
             "JOIN i.lemma l " +
-            "WHERE l.lemma IN :lemmas AND p.site.id IN :siteIds")
+            "WHERE l.lemma IN :lemmas AND p.site.id IN :siteIds AND p.generation = p.site.generation")
     List<Page> findPagesByLemmasAndSites(@Param("lemmas") List<String> lemmas, @Param("siteIds") List<Integer> siteIds);
 
 }
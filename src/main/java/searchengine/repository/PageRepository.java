@@ -16,29 +16,39 @@ public interface PageRepository extends JpaRepository<Page, Integer> {
 
     Optional<Page> findBySiteIdAndUrl(Integer siteId, String url);
     
-    @Query("SELECT p FROM Page p WHERE p.path = :path AND p.site.id = :siteId")
-    List<Page> findByPathAndSiteId(@Param("path") String path, @Param("siteId") Integer siteId);
+    @Query("SELECT p FROM Page p WHERE p.path = :path AND p.site.id = :siteId AND p.generation = :generation")
+    List<Page> findByPathAndSiteId(@Param("path") String path, @Param("siteId") Integer siteId, @Param("generation") int generation);
 
-    @Query("SELECT COUNT(p) FROM Page p")
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.generation = p.site.generation")
     int countAllPages();
 
-    @Query("SELECT COUNT(p) FROM Page p WHERE p.site.id = :siteId")
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.site.id = :siteId AND p.generation = p.site.generation")
     int countBySiteId(@Param("siteId") Integer siteId);
 
 
     List<Page> findAllById(Iterable<Integer> ids);
 
-    @Query("SELECT COUNT(p) FROM Page p WHERE p.site = :site")
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.site = :site AND p.generation = p.site.generation")
     int countBySite(@Param("site") Site site);
 
     @Query("SELECT DISTINCT p FROM Page p " +
             "JOIN p.pageLemmas i " +
             "JOIN i.lemma l " +
-            "WHERE l.lemma IN :lemmas AND p.site.id IN :siteIds")
+            "WHERE l.lemma IN :lemmas AND p.site.id IN :siteIds AND p.generation = p.site.generation")
     List<Page> findPagesByLemmasAndSites(@Param("lemmas") List<String> lemmas, @Param("siteIds") List<Integer> siteIds);
 
     @Query("SELECT p FROM Page p WHERE p.site.id = :siteId")
     List<Page> findAllBySiteId(@Param("siteId") Integer siteId);
 
+    @Query("SELECT p.id, p.contentHash, p.simHash FROM Page p " +
+            "WHERE p.site.id = :siteId AND p.generation = :generation AND p.duplicateOfId IS NULL AND p.contentHash IS NOT NULL")
+    List<Object[]> findFingerprintsBySiteId(@Param("siteId") Integer siteId, @Param("generation") int generation);
+
+    @Query("SELECT p FROM Page p WHERE p.duplicateOfId = :pageId AND p.generation = :generation")
+    List<Page> findDuplicatesOf(@Param("pageId") Integer pageId, @Param("generation") int generation);
+
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.site.id = :siteId AND p.generation = :generation AND p.duplicateOfId IS NOT NULL")
+    int countDuplicatesBySiteId(@Param("siteId") Integer siteId, @Param("generation") int generation);
+
 
 }
@@ -0,0 +1,191 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import searchengine.config.LemmaDictionary;
+
+import java.util.*;
+
+/**
+ * Запись индекса страниц пачками вместо отдельных запросов на каждую лемму.
+ * id лемм берутся из словаря сайта ({@link LemmaCache}); отсутствующие в нём леммы
+ * создаются одной пачкой INSERT ... ON DUPLICATE KEY UPDATE и читаются одним запросом.
+ * Строки page_lemma вставляются одним пакетом, частоты лемм передаются
+ * в {@link LemmaFrequencyBuffer} и записываются позже. При rewriteBatchedStatements=true драйвер MySQL
+ * превращает пакеты в многострочные INSERT.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkIndexWriter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String ALLOCATE_LEMMA =
+            "INSERT INTO lemma (site_id, generation, lemma, frequency) VALUES (?, ?, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+    private static final String INSERT_PAGE_LEMMA =
+            "INSERT INTO page_lemma (page_id, lemma_id, rank_value) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE rank_value = rank_value + VALUES(rank_value)";
+    private static final String SELECT_PAGE_LEMMAS =
+            "SELECT pl.lemma_id, l.lemma, pl.rank_value FROM page_lemma pl JOIN lemma l ON l.id = pl.lemma_id " +
+            "WHERE pl.page_id = ? FOR UPDATE";
+    private static final String UPDATE_RANK = "UPDATE page_lemma SET rank_value = ? WHERE page_id = ? AND lemma_id = ?";
+    private static final String DELETE_PAGE_LEMMA = "DELETE FROM page_lemma WHERE page_id = ? AND lemma_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LemmaCache lemmaCache;
+    private final LemmaFrequencyBuffer frequencyBuffer;
+
+    /**
+     * Записывает индекс нескольких страниц одного поколения сайта. Строки сортируются по лемме,
+     * чтобы параллельные транзакции захватывали блокировки в одном порядке.
+     */
+    public void writeIndex(int siteId, int generation, Map<Integer, ? extends Map<String, Integer>> lemmasByPage) {
+        SortedSet<String> keys = new TreeSet<>();
+        for (Map<String, Integer> lemmas : lemmasByPage.values()) {
+            lemmas.keySet().forEach(lemma -> keys.add(lookupKey(lemma)));
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        LemmaDictionary dictionary = lemmaCache.forSite(siteId, generation);
+        Map<String, Integer> lemmaIds = new HashMap<>(keys.size() * 2);
+        List<String> unknown = new ArrayList<>();
+        for (String key : keys) {
+            Integer id = dictionary.get(key);
+            if (id != null) {
+                lemmaIds.put(key, id);
+            } else {
+                unknown.add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            lemmaIds.putAll(allocate(siteId, generation, unknown, dictionary));
+        }
+
+        List<Object[]> pageLemmaRows = new ArrayList<>();
+        Map<Integer, Integer> pagesPerLemma = new HashMap<>(lemmaIds.size() * 2);
+        lemmasByPage.forEach((pageId, lemmas) -> {
+            Set<Integer> pageLemmaIds = new HashSet<>(lemmas.size() * 2);
+            lemmas.forEach((lemma, count) -> {
+                Integer lemmaId = lemmaIds.get(lookupKey(lemma));
+                if (lemmaId != null) {
+                    pageLemmaRows.add(new Object[]{pageId, lemmaId, count.floatValue()});
+                    if (pageLemmaIds.add(lemmaId)) {
+                        pagesPerLemma.merge(lemmaId, 1, Integer::sum);
+                    }
+                }
+            });
+        });
+        jdbcTemplate.batchUpdate(INSERT_PAGE_LEMMA, pageLemmaRows);
+        frequencyBuffer.add(siteId, pagesPerLemma);
+    }
+
+    /**
+     * Приводит индекс уже проиндексированной страницы к новому набору лемм, сравнивая его
+     * с сохранёнными строками page_lemma: отсутствующие строки удаляются, новые добавляются,
+     * у изменившихся обновляется rank. Частота удалённой леммы уменьшается на одну страницу,
+     * добавленной - увеличивается, поэтому повторная индексация той же страницы ничего не меняет.
+     * Пустой набор лемм удаляет индекс страницы целиком.
+     */
+    public void replacePageIndex(int siteId, int generation, int pageId, Map<String, Integer> lemmas) {
+        Map<String, Integer> counts = new HashMap<>(lemmas.size() * 2);
+        lemmas.forEach((lemma, count) -> counts.merge(lookupKey(lemma), count, Integer::sum));
+
+        Map<String, int[]> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_PAGE_LEMMAS, rs -> {
+            existing.put(lookupKey(rs.getString("lemma")),
+                    new int[]{rs.getInt("lemma_id"), Math.round(rs.getFloat("rank_value"))});
+        }, pageId);
+
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> rankUpdates = new ArrayList<>();
+        Map<Integer, Integer> frequencyDeltas = new HashMap<>();
+        existing.forEach((key, row) -> {
+            Integer count = counts.get(key);
+            if (count == null) {
+                deletes.add(new Object[]{pageId, row[0]});
+                frequencyDeltas.put(row[0], -1);
+            } else if (count != row[1]) {
+                rankUpdates.add(new Object[]{count.floatValue(), pageId, row[0]});
+            }
+        });
+        Map<String, Integer> added = new HashMap<>();
+        counts.forEach((key, count) -> {
+            if (!existing.containsKey(key)) {
+                added.put(key, count);
+            }
+        });
+
+        jdbcTemplate.batchUpdate(DELETE_PAGE_LEMMA, deletes);
+        jdbcTemplate.batchUpdate(UPDATE_RANK, rankUpdates);
+        frequencyBuffer.add(siteId, frequencyDeltas);
+        if (!added.isEmpty()) {
+            writeIndex(siteId, generation, Map.of(pageId, added));
+        }
+        System.out.println("Индекс страницы " + pageId + ": добавлено лемм " + added.size()
+                + ", удалено " + deletes.size() + ", изменено " + rankUpdates.size());
+    }
+
+    /**
+     * Создаёт строки для новых лемм одной пачкой и получает их id. Если транзакция
+     * будет откачена, выданные id убираются из словаря, чтобы не ссылаться на несуществующие строки.
+     */
+    private Map<String, Integer> allocate(int siteId, int generation, List<String> keys, LemmaDictionary dictionary) {
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            rows.add(new Object[]{siteId, generation, key});
+        }
+        jdbcTemplate.batchUpdate(ALLOCATE_LEMMA, rows);
+
+        Map<String, Integer> allocated = findLemmaIds(siteId, generation, keys);
+        allocated.forEach(dictionary::put);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        allocated.keySet().forEach(dictionary::remove);
+                    }
+                }
+            });
+        }
+        return allocated;
+    }
+
+    /**
+     * Чтение с блокировкой возвращает последние зафиксированные строки, в том числе
+     * созданные параллельными транзакциями после начала текущей.
+     */
+    public Map<String, Integer> findLemmaIds(int siteId, int generation, Collection<String> lemmas) {
+        Map<String, Integer> ids = new HashMap<>(lemmas.size() * 2);
+        List<String> all = new ArrayList<>(lemmas);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<String> chunk = all.subList(from, Math.min(all.size(), from + CHUNK_SIZE));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Object[] args = new Object[chunk.size() + 2];
+            args[0] = siteId;
+            args[1] = generation;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 2] = chunk.get(i);
+            }
+            jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ? AND generation = ? AND lemma IN (" + placeholders + ") LOCK IN SHARE MODE",
+                    rs -> {
+                        ids.put(lookupKey(rs.getString("lemma")), rs.getInt("id"));
+                    }, args);
+        }
+        return ids;
+    }
+
+    /**
+     * Сравнение строк в MySQL по умолчанию не различает "е" и "ё", поэтому такие леммы
+     * попадают в одну строку таблицы lemma; ключ словаря приводится к тому же виду.
+     */
+    static String lookupKey(String lemma) {
+        return lemma.replace('ё', 'е');
+    }
+}
@@ -0,0 +1,178 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlPageTask;
+import searchengine.config.CrawlSession;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FrontierEntry;
+import searchengine.config.RobotsRules;
+import searchengine.services.interfaces.IndexPageService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Движок обхода сайтов. Загрузка страниц почти целиком состоит из ожидания сети,
+ * поэтому запросы выполняются асинхронно и потоков не занимают; поиск сохранённой
+ * страницы и разбор ответов идут на фиксированном пуле из crawl-threads потоков.
+ * Общее число одновременных загрузок ограничивается настройкой
+ * crawler-settings.max-concurrent-fetches и от числа потоков не зависит.
+ */
+@Component
+@RequiredArgsConstructor
+public class CrawlEngine {
+
+    private static final long IDLE_WAIT_MS = 100;
+
+    private final CrawlerSettings crawlerSettings;
+    private final PageFetcher pageFetcher;
+    private final IndexPageService indexPageService;
+    private final PolitenessScheduler politenessScheduler;
+    private final RobotsTxtService robotsTxtService;
+    private final SitemapLoader sitemapLoader;
+    private final IndexingPipeline indexingPipeline;
+
+    private ExecutorService executor;
+    private Semaphore fetchPermits;
+
+    @PostConstruct
+    public void init() {
+        int maxConcurrentFetches = Math.max(1, crawlerSettings.getMaxConcurrentFetches());
+        fetchPermits = new Semaphore(maxConcurrentFetches);
+        executor = createExecutor(crawlerSettings.getCrawlThreads() > 0
+                ? crawlerSettings.getCrawlThreads()
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void crawl(CrawlSession session, String startUrl) throws InterruptedException {
+        politenessScheduler.configure(session.getSiteConfig());
+        robotsTxtService.evict(startUrl);
+        RobotsRules robotsRules = robotsTxtService.getRules(startUrl);
+        session.setRobotsRules(robotsRules);
+        if (robotsRules.getCrawlDelaySeconds() != null) {
+            politenessScheduler.applyCrawlDelay(PolitenessScheduler.hostOf(startUrl), robotsRules.getCrawlDelaySeconds());
+        }
+        session.offer(startUrl);
+        if (crawlerSettings.isSitemapSeeding()) {
+            seedFromSitemaps(session, startUrl, robotsRules);
+        }
+
+        while (!session.isCancelled()) {
+            session.checkTimeBudget();
+            if (session.checkPageBudget()) {
+                if (session.getInFlight() == 0) {
+                    break;
+                }
+                session.awaitProgress(IDLE_WAIT_MS);
+                continue;
+            }
+            FrontierEntry entry = session.poll();
+            if (entry == null) {
+                if (session.getInFlight() == 0) {
+                    break;
+                }
+                session.awaitProgress(IDLE_WAIT_MS);
+                continue;
+            }
+            submit(session, entry);
+        }
+
+        while (session.getInFlight() > 0 || session.getPendingWrites() > 0) {
+            session.awaitProgress(IDLE_WAIT_MS);
+        }
+    }
+
+    /**
+     * Добавляет в очередь адреса из карт сайта, указанных в robots.txt (или /sitemap.xml),
+     * чтобы глубокие страницы не приходилось искать через все страницы-списки.
+     * Такие адреса считаются находящимися на расстоянии одной ссылки от стартовой страницы.
+     */
+    private void seedFromSitemaps(CrawlSession session, String startUrl, RobotsRules robotsRules) {
+        List<String> sitemaps = robotsRules.getSitemaps();
+        if (sitemaps.isEmpty()) {
+            String origin = RobotsTxtService.originOf(startUrl);
+            if (origin == null) {
+                return;
+            }
+            sitemaps = List.of(origin + "/sitemap.xml");
+        }
+        int seeded = 0;
+        for (String url : sitemapLoader.load(sitemaps)) {
+            if (session.isCancelled()) {
+                return;
+            }
+            if (session.offer(url, 1)) {
+                seeded++;
+            }
+        }
+        System.out.println("Из карт сайта добавлено в очередь: " + seeded + ", сайт: " + startUrl);
+    }
+
+    public int getActiveFetches() {
+        return crawlerSettings.getMaxConcurrentFetches() - fetchPermits.availablePermits();
+    }
+
+    private void submit(CrawlSession session, FrontierEntry entry) throws InterruptedException {
+        String host = PolitenessScheduler.hostOf(entry.getUrl());
+        if (!awaitHostSlot(session, host)) {
+            return;
+        }
+
+        try {
+            fetchPermits.acquire();
+        } catch (InterruptedException e) {
+            politenessScheduler.release(host);
+            throw e;
+        }
+        session.taskStarted();
+        CrawlPageTask task = new CrawlPageTask(entry.getUrl(), entry.getDepth(), session, pageFetcher, indexPageService, indexingPipeline);
+        CompletableFuture<Void> processed;
+        try {
+            processed = task.run(executor);
+        } catch (RejectedExecutionException e) {
+            politenessScheduler.release(host);
+            fetchPermits.release();
+            session.taskFinished();
+            throw e;
+        }
+        processed.whenComplete((ignored, error) -> {
+            politenessScheduler.release(host);
+            fetchPermits.release();
+            session.taskFinished();
+        });
+    }
+
+    /**
+     * Ожидание слота хоста происходит до захвата общего разрешения на загрузку,
+     * поэтому пока хост ограничен по частоте, свободные слоты достаются другим сайтам.
+     */
+    private boolean awaitHostSlot(CrawlSession session, String host) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = politenessScheduler.tryAcquire(host)) > 0) {
+            if (session.isCancelled()) {
+                return false;
+            }
+            session.awaitProgress(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+        }
+        return true;
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        System.out.println("Обработка загруженных страниц: потоков " + threads);
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "crawl-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FingerprintIndex;
+import searchengine.config.GenerationCache;
+import searchengine.repository.PageRepository;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Индексы отпечатков содержимого по сайтам и поколениям. Индекс строится из базы
+ * при захвате: на время обхода сайта или индексации отдельной страницы, и
+ * освобождается, когда его больше никто не держит.
+ */
+@Component
+@RequiredArgsConstructor
+public class DuplicateDetector {
+
+    private final PageRepository pageRepository;
+    private final CrawlerSettings crawlerSettings;
+    private final GenerationCache<FingerprintIndex> indexes = new GenerationCache<>(this::load);
+
+    /**
+     * Полосы SimHash гарантируют поиск копий только до расстояния {@link FingerprintIndex#MAX_DISTANCE},
+     * поэтому большее значение настройки не принимается при запуске, а не урезается молча.
+     */
+    @PostConstruct
+    public void checkSettings() {
+        int distance = crawlerSettings.getNearDuplicateDistance();
+        if (distance < 0 || distance > FingerprintIndex.MAX_DISTANCE) {
+            throw new IllegalStateException("crawler-settings.near-duplicate-distance должно быть от 0 до "
+                    + FingerprintIndex.MAX_DISTANCE + ", задано " + distance);
+        }
+    }
+
+    public void acquire(int siteId, int generation) {
+        indexes.acquire(siteId, generation);
+    }
+
+    public void release(int siteId, int generation) {
+        indexes.release(siteId, generation);
+    }
+
+    /**
+     * Освобождает индексы всех поколений сайта, например при смене поколения.
+     */
+    public void evict(int siteId) {
+        indexes.evict(siteId);
+    }
+
+    /**
+     * Индекс поколения, захваченного через {@link #acquire}. Без захвата индекс
+     * загружается только для этого вызова и не сохраняется.
+     */
+    public FingerprintIndex indexFor(int siteId, int generation) {
+        FingerprintIndex index = indexes.get(siteId, generation);
+        return index != null ? index : load(siteId, generation);
+    }
+
+    /**
+     * Убирает отпечатки страницы из индекса, если он загружен.
+     */
+    public void forget(int siteId, int generation, int pageId) {
+        FingerprintIndex index = indexes.get(siteId, generation);
+        if (index != null) {
+            index.remove(pageId);
+        }
+    }
+
+    private FingerprintIndex load(int siteId, int generation) {
+        FingerprintIndex index = new FingerprintIndex(crawlerSettings.getNearDuplicateDistance());
+        for (Object[] row : pageRepository.findFingerprintsBySiteId(siteId, generation)) {
+            Long simHash = (Long) row[2];
+            index.add((Integer) row[0], (String) row[1], simHash == null ? 0 : simHash);
+        }
+        System.out.println("Загружены отпечатки страниц сайта " + siteId + ": " + index.size());
+        return index;
+    }
+}
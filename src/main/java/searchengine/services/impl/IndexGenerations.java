@@ -0,0 +1,141 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repository.SiteRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Поколения индекса сайта. Полная переиндексация пишет страницы и леммы в новое
+ * поколение, пока поиск продолжает работать по текущему. По окончании сборки
+ * поиск переключается на новое поколение одним обновлением строки site,
+ * после чего старое поколение удаляется запросами по множеству строк.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexGenerations {
+
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SiteRepository siteRepository;
+    private final LemmaCache lemmaCache;
+    private final DuplicateDetector duplicateDetector;
+
+    /**
+     * Начинает сборку нового поколения. Остатки незавершённой сборки удаляются.
+     */
+    public void startBuild(Site site) {
+        if (site.getBuildGeneration() != null) {
+            drop(site.getId(), site.getBuildGeneration());
+        }
+        int next = site.getGeneration() + 1;
+        drop(site.getId(), next);
+        site.setBuildGeneration(next);
+        siteRepository.save(site);
+        releaseCaches(site);
+        System.out.println("Сайт " + site.getUrl() + ": сборка поколения " + next + ", поиск работает по поколению " + site.getGeneration());
+    }
+
+    /**
+     * Отменяет незавершённую сборку, например перед повторным обходом текущего поколения.
+     */
+    public void abandonBuild(Site site) {
+        if (site.getBuildGeneration() == null) {
+            return;
+        }
+        drop(site.getId(), site.getBuildGeneration());
+        site.setBuildGeneration(null);
+        siteRepository.save(site);
+        releaseCaches(site);
+    }
+
+    /**
+     * Проверяет, можно ли переключать поиск на собранное поколение. Недоступный во время
+     * обхода сайт (ошибка DNS, 5xx на стартовой странице, изменившийся robots.txt) даёт
+     * пустое или почти пустое поколение, которое не должно заменить рабочий индекс.
+     *
+     * @param startPath    ключ стартовой страницы сайта, см. {@link searchengine.config.UrlCanonicalizer#pageKey}
+     * @param minPageRatio минимальная доля страниц текущего поколения, которую должна содержать сборка
+     * @return причина отказа или null, если поколение можно активировать
+     */
+    public String checkBuild(Site site, String startPath, double minPageRatio) {
+        Integer build = site.getBuildGeneration();
+        if (build == null) {
+            return null;
+        }
+        List<Integer> startCodes = jdbcTemplate.queryForList(
+                "SELECT status_code FROM page WHERE site_id = ? AND generation = ? AND path = ?",
+                Integer.class, site.getId(), build, startPath);
+        if (startCodes.isEmpty()) {
+            return "стартовая страница не загружена";
+        }
+        if (startCodes.get(0) >= 400) {
+            return "стартовая страница вернула код " + startCodes.get(0);
+        }
+        int built = countPages(site.getId(), build);
+        int live = countPages(site.getId(), site.getGeneration());
+        if (live > 0 && built < live * minPageRatio) {
+            return "страниц " + built + ", в текущем поколении " + live;
+        }
+        return null;
+    }
+
+    /**
+     * Переключает поиск на собранное поколение и удаляет предыдущее.
+     */
+    public void activate(Site site) {
+        if (site.getBuildGeneration() == null) {
+            return;
+        }
+        int previous = site.getGeneration();
+        site.setGeneration(site.getBuildGeneration());
+        site.setBuildGeneration(null);
+        siteRepository.save(site);
+        releaseCaches(site);
+        System.out.println("Сайт " + site.getUrl() + ": поиск переключён на поколение " + site.getGeneration());
+        drop(site.getId(), previous);
+    }
+
+    /**
+     * Удаляет страницы, их индекс и леммы поколения. Страницы удаляются порциями,
+     * чтобы не держать долгих блокировок на таблицах, по которым идёт поиск.
+     */
+    public void drop(int siteId, int generation) {
+        long pages = 0;
+        List<Integer> pageIds;
+        while (!(pageIds = jdbcTemplate.queryForList(
+                "SELECT id FROM page WHERE site_id = ? AND generation = ? LIMIT " + DELETE_CHUNK_SIZE,
+                Integer.class, siteId, generation)).isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(pageIds.size(), "?"));
+            Object[] ids = pageIds.toArray();
+            jdbcTemplate.update("DELETE FROM page_lemma WHERE page_id IN (" + placeholders + ")", ids);
+            pages += jdbcTemplate.update("DELETE FROM page WHERE id IN (" + placeholders + ")", ids);
+        }
+        long lemmas = 0;
+        int deleted;
+        while ((deleted = jdbcTemplate.update(
+                "DELETE FROM lemma WHERE site_id = ? AND generation = ? LIMIT " + DELETE_CHUNK_SIZE,
+                siteId, generation)) > 0) {
+            lemmas += deleted;
+        }
+        if (pages > 0 || lemmas > 0) {
+            System.out.println("Удалено поколение " + generation + " сайта " + siteId + ": страниц " + pages + ", лемм " + lemmas);
+        }
+    }
+
+    private int countPages(int siteId, int generation) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM page WHERE site_id = ? AND generation = ?", Integer.class, siteId, generation);
+        return count == null ? 0 : count;
+    }
+
+    private void releaseCaches(Site site) {
+        lemmaCache.evict(site.getId());
+        duplicateDetector.evict(site.getId());
+    }
+}
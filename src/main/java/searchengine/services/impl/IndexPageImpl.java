@@ -2,25 +2,27 @@ package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import searchengine.config.HtmlUtils;
-import searchengine.model.PageLemma;
-import searchengine.model.Lemma;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FetchResult;
+import searchengine.config.PageText;
+import searchengine.config.PreparedPage;
+import searchengine.config.UrlCanonicalizer;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
-import searchengine.repository.PageLemmaRepository;
-import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
 import searchengine.services.interfaces.IndexPageService;
 import searchengine.services.interfaces.MorphologyProcessor;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import java.io.IOException;
-import java.net.URL;
 import java.util.*;
 
 
@@ -33,12 +35,28 @@ public class IndexPageImpl implements IndexPageService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaServiceImpl lemmaService;
-    private final LemmaRepository lemmaRepository;
-    private final PageLemmaRepository pageLemmaRepository;
+    private final PageFetcher pageFetcher;
+    private final DuplicateDetector duplicateDetector;
+    private final LemmaCache lemmaCache;
+    private final BulkIndexWriter bulkIndexWriter;
+    private final PlatformTransactionManager transactionManager;
+    private final CrawlerSettings crawlerSettings;
+    private UrlCanonicalizer urlCanonicalizer;
+
+    @PostConstruct
+    public void init() {
+        urlCanonicalizer = new UrlCanonicalizer(crawlerSettings.getStripQueryParams(), crawlerSettings.getSkipExtensions());
+    }
 
 
+    /**
+     * Страница всегда загружается заново (условным запросом, если она уже есть в базе);
+     * индекс изменившейся страницы обновляется по разнице с сохранённым.
+     * Загрузка и лемматизация выполняются вне транзакции, соединение с базой
+     * занимается только на время записи. Отпечатки страниц и словарь лемм сайта
+     * держатся в памяти только на время этого вызова, если сайт сейчас не обходится.
+     */
     @Override
-    @Transactional
     public boolean indexPage(String url) {
         try {
             System.out.println("Начата индексация страницы: " + url);
@@ -49,63 +67,22 @@ public class IndexPageImpl implements IndexPageService {
                 return false;
             }
 
-            String path = new URL(url).getPath();
-            String finalPath = path.isBlank() ? "/" : path;
-
-            Page page = pageRepository.findByPathAndSiteId(finalPath, site.getId())
-                    .stream().findFirst().orElseGet(() -> {
-                        Page newPage = new Page();
-                        newPage.setSite(site);
-                        newPage.setPath(finalPath);
-                        newPage.setUrl(url);
-                        try {
-                            newPage.setContent(HtmlUtils.getHtmlContent(url));
-                        } catch (IOException e) {
-                            throw new RuntimeException("Ошибка при получении контента для URL: " + url, e);
-                        }
-                        newPage.setCode(200);
-                        pageRepository.save(newPage);
-                        return newPage;
-                    });
-
-            HashMap<String, Integer> lemmas = lemmaService.collectLemmas(page.getContent());
-            System.out.println("Обнаруженные леммы: " + lemmas);
-
-            for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
-                String lemmaText = entry.getKey();
-                Integer count = entry.getValue();
-
-
-                Lemma lemma = lemmaRepository.findByLemma(lemmaText).stream()
-                        .findFirst()
-                        .orElseGet(() -> {
-                            Lemma newLemma = new Lemma();
-                            newLemma.setLemma(lemmaText);
-                            newLemma.setSite(site);
-                            newLemma.setFrequency(0);
-                            lemmaRepository.save(newLemma);
-                            return newLemma;
-                        });
-
-                lemma.setFrequency(lemma.getFrequency() + count);
-                lemmaRepository.save(lemma);
-
-                PageLemma existingPageLemma = pageLemmaRepository.findByLemmaAndPage(lemma, page)
-                        .stream()
-                        .findFirst()
-                        .orElse(new PageLemma());
-
-                existingPageLemma.setPage(page);
-                existingPageLemma.setLemma(lemma);
-                existingPageLemma.setRank(existingPageLemma.getRank() + count);
-
-                pageLemmaRepository.save(existingPageLemma);  // Сохраняем или обновляем индекс
-                System.out.println("Индекс обновлен для леммы: " + lemmaText + " на странице: " + page.getId());
+            int generation = site.getWriteGeneration();
+            duplicateDetector.acquire(site.getId(), generation);
+            lemmaCache.acquire(site.getId(), generation);
+            try {
+                Page previous = findPage(site, url).orElse(null);
+                FetchResult fetchResult = pageFetcher.fetch(url, previous);
+                if (!fetchResult.isHtml()) {
+                    System.out.println("Страница не является HTML-документом: " + url);
+                    return false;
+                }
+                return indexPage(site, fetchResult);
+            } finally {
+                lemmaCache.release(site.getId(), generation);
+                duplicateDetector.release(site.getId(), generation);
             }
 
-            System.out.println("Индексация успешно завершена для страницы: " + url);
-            return true;
-
         } catch (Exception e) {
             System.out.println("Ошибка при индексации страницы: " + url);
             e.printStackTrace();
@@ -113,6 +90,205 @@ public class IndexPageImpl implements IndexPageService {
         }
     }
 
+    @Override
+    public boolean indexPage(Site site, FetchResult fetchResult) {
+        return writePages(List.of(prepare(site, fetchResult))).get(0);
+    }
+
+    /**
+     * Подготовка страницы без обращения к базе на запись: извлечение заголовка и текста, сбор лемм по тексту.
+     * Вероятная копия уже известной страницы не лемматизируется; если при записи
+     * окажется, что это не копия, леммы будут собраны там.
+     */
+    @Override
+    public PreparedPage prepare(Site site, FetchResult fetchResult) {
+        if (fetchResult.isNotModified()) {
+            return new PreparedPage(site, fetchResult, null);
+        }
+        PageText pageText = fetchResult.getPageText();
+        if (duplicateDetector.indexFor(site.getId(), site.getWriteGeneration()).hasDuplicate(fetchResult.getContentHash(), fetchResult.getSimHash())) {
+            return new PreparedPage(site, fetchResult, null);
+        }
+        return new PreparedPage(site, fetchResult, lemmaService.collectLemmas(pageText.getIndexedText()));
+    }
+
+    /**
+     * Записывает пачку страниц одной транзакцией: строки page сохраняются по одной,
+     * леммы и page_lemma всех страниц пачки пишутся одним набором пакетных запросов на сайт.
+     * Если пачка не записалась, страницы повторяются по одной, чтобы ошибка одной
+     * страницы не теряла остальные.
+     *
+     * @return признак успешной записи для каждой страницы в исходном порядке
+     */
+    @Override
+    public List<Boolean> writePages(List<PreparedPage> pages) {
+        try {
+            return transactionTemplate().execute(status -> writeBatch(pages));
+        } catch (RuntimeException e) {
+            if (pages.size() == 1) {
+                System.out.println("Ошибка при индексации страницы: " + pages.get(0).getFetchResult().getUrl());
+                e.printStackTrace();
+                return List.of(false);
+            }
+            System.out.println("Пачка из " + pages.size() + " страниц не записана, повтор по одной: " + e.getMessage());
+            List<Boolean> results = new ArrayList<>(pages.size());
+            for (PreparedPage page : pages) {
+                results.add(writePages(List.of(page)).get(0));
+            }
+            return results;
+        }
+    }
+
+    private List<Boolean> writeBatch(List<PreparedPage> pages) {
+        Map<Integer, Map<Integer, Map<String, Integer>>> lemmasBySite = new LinkedHashMap<>();
+        Map<Integer, Integer> generations = new HashMap<>();
+        List<Boolean> results = new ArrayList<>(pages.size());
+        for (PreparedPage prepared : pages) {
+            results.add(writePage(prepared, lemmasBySite));
+            generations.put(prepared.getSite().getId(), prepared.getSite().getWriteGeneration());
+        }
+        entityManager.flush();
+        lemmasBySite.forEach((siteId, lemmasByPage) ->
+                bulkIndexWriter.writeIndex(siteId, generations.get(siteId), lemmasByPage));
+        return results;
+    }
+
+    private boolean writePage(PreparedPage prepared, Map<Integer, Map<Integer, Map<String, Integer>>> lemmasBySite) {
+        Site site = prepared.getSite();
+        FetchResult fetchResult = prepared.getFetchResult();
+        String url = fetchResult.getUrl();
+
+        Optional<Page> existingPage = findPage(site, url);
+        if (existingPage.isPresent()) {
+            Page page = existingPage.get();
+            if (fetchResult.isNotModified() || fetchResult.getContentHash().equals(page.getContentHash())) {
+                System.out.println("Страница не изменилась: " + url);
+                return true;
+            }
+            duplicateDetector.forget(site.getId(), site.getWriteGeneration(), page.getId());
+            applyFetchResult(page, fetchResult);
+            page.setDuplicateOfId(null);
+            pageRepository.save(page);
+            Map<String, Integer> lemmas = markIfDuplicate(site, page) ? Map.of() : lemmasOf(prepared, page);
+            entityManager.flush();
+            bulkIndexWriter.replacePageIndex(site.getId(), page.getGeneration(), page.getId(), lemmas);
+            reevaluateDuplicates(site, page);
+            System.out.println("Индекс обновлённой страницы изменён по разнице: " + url);
+            return true;
+        }
+
+        if (fetchResult.isNotModified()) {
+            System.out.println("Получен ответ 304 для отсутствующей страницы: " + url);
+            return false;
+        }
+
+        Page page = new Page();
+        page.setSite(site);
+        page.setPath(getPath(url));
+        page.setGeneration(site.getWriteGeneration());
+        page.setUrl(url);
+        applyFetchResult(page, fetchResult);
+        pageRepository.save(page);
+        if (markIfDuplicate(site, page)) {
+            return true;
+        }
+        lemmasBySite.computeIfAbsent(site.getId(), id -> new LinkedHashMap<>()).put(page.getId(), lemmasOf(prepared, page));
+        return true;
+    }
+
+    private Map<String, Integer> lemmasOf(PreparedPage prepared, Page page) {
+        return prepared.getLemmas() != null
+                ? prepared.getLemmas()
+                : lemmaService.collectLemmas(PageText.of(page).getIndexedText());
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Optional<Page> findPage(Site site, String url) {
+        return pageRepository.findByPathAndSiteId(getPath(url), site.getId(), site.getWriteGeneration()).stream().findFirst();
+    }
+
+    private void applyFetchResult(Page page, FetchResult fetchResult) {
+        page.setContent(fetchResult.getContent());
+        page.setTitle(fetchResult.getPageText().getTitle());
+        page.setText(fetchResult.getPageText().getText());
+        page.setCode(fetchResult.getStatusCode());
+        page.setEtag(fetchResult.getEtag());
+        page.setLastModified(fetchResult.getLastModified());
+        page.setContentHash(fetchResult.getContentHash());
+        page.setSimHash(fetchResult.getSimHash());
+    }
+
+    /**
+     * Страница с тем же или почти тем же содержимым, что у уже проиндексированной,
+     * сохраняется как её псевдоним: леммы не собираются, записи в page_lemma не создаются.
+     */
+    private boolean markIfDuplicate(Site site, Page page) {
+        long simHash = page.getSimHash() == null ? 0 : page.getSimHash();
+        Integer originalId = duplicateDetector.indexFor(site.getId(), site.getWriteGeneration()).findOrAdd(page.getId(), page.getContentHash(), simHash);
+        if (originalId == null) {
+            forgetOnRollback(site, page.getId());
+            return false;
+        }
+        page.setDuplicateOfId(originalId);
+        pageRepository.save(page);
+        System.out.println("Страница " + page.getUrl() + " совпадает со страницей " + originalId + ", индексация пропущена");
+        return true;
+    }
+
+    /**
+     * Копии изменившейся страницы проверяются заново: с новым содержимым они могут
+     * перестать с ней совпадать, а при инкрементальном обходе их собственный хеш
+     * не меняется, и сами они повторно не обрабатываются. Копия, для которой
+     * не нашлось другого оригинала, индексируется по сохранённому тексту.
+     */
+    private void reevaluateDuplicates(Site site, Page original) {
+        for (Page copy : pageRepository.findDuplicatesOf(original.getId(), original.getGeneration())) {
+            copy.setDuplicateOfId(null);
+            if (markIfDuplicate(site, copy)) {
+                continue;
+            }
+            pageRepository.save(copy);
+            entityManager.flush();
+            bulkIndexWriter.replacePageIndex(site.getId(), copy.getGeneration(), copy.getId(),
+                    lemmaService.collectLemmas(PageText.of(copy).getIndexedText()));
+            System.out.println("Страница " + copy.getUrl() + " больше не совпадает со страницей " + original.getId() + ", проиндексирована");
+        }
+    }
+
+    /**
+     * Отпечаток страницы попадает в индекс до фиксации транзакции; при откате
+     * он удаляется, иначе следующие страницы считались бы копиями несуществующей.
+     */
+    private void forgetOnRollback(Site site, int pageId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    duplicateDetector.forget(site.getId(), site.getWriteGeneration(), pageId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Страница хранится под тем же ключом, под которым адрес стоит в очереди обхода:
+     * канонический путь вместе с параметрами запроса.
+     */
+    private String getPath(String url) {
+        String canonicalUrl = urlCanonicalizer.canonicalize(url);
+        if (canonicalUrl == null) {
+            throw new IllegalArgumentException("Некорректный URL: " + url);
+        }
+        return UrlCanonicalizer.pageKey(canonicalUrl);
+    }
+
     private Site findSiteForUrl(String url) {
         String normalizedUrl = url.replaceFirst("^https?://(www\\.)?", "").replaceAll("/$", "");
         return siteRepository.findAll().stream()
@@ -0,0 +1,212 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSession;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FetchResult;
+import searchengine.config.PreparedPage;
+import searchengine.config.StageMetrics;
+import searchengine.dto.indexing.PipelineStageStats;
+import searchengine.services.interfaces.IndexPageService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер индексации: загрузка → лемматизация → запись в базу.
+ * Стадии связаны ограниченными очередями. Когда запись не успевает,
+ * заполненные очереди останавливают загрузчиков в {@link #submit}, и скорость
+ * обхода подстраивается под самую медленную стадию.
+ * Соединение с базой занимают только потоки записи, и только на время записи пачки.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexingPipeline {
+
+    private static final long OFFER_WAIT_MS = 100;
+    private static final long POLL_WAIT_MS = 200;
+
+    private final CrawlerSettings crawlerSettings;
+    private final IndexPageService indexPageService;
+
+    private BlockingQueue<Item> lemmatizeQueue;
+    private BlockingQueue<Item> writeQueue;
+    private final List<Thread> workers = new ArrayList<>();
+    private StageMetrics fetchMetrics;
+    private StageMetrics lemmatizeMetrics;
+    private StageMetrics writeMetrics;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        int lemmatizerThreads = crawlerSettings.getLemmatizerThreads() > 0
+                ? crawlerSettings.getLemmatizerThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int writerThreads = Math.max(1, crawlerSettings.getWriterThreads());
+        lemmatizeQueue = new ArrayBlockingQueue<>(Math.max(1, crawlerSettings.getLemmatizeQueueCapacity()));
+        writeQueue = new ArrayBlockingQueue<>(Math.max(1, crawlerSettings.getWriteQueueCapacity()));
+        fetchMetrics = new StageMetrics("fetch", crawlerSettings.getMaxConcurrentFetches(), () -> 0);
+        lemmatizeMetrics = new StageMetrics("lemmatize", lemmatizerThreads, lemmatizeQueue::size);
+        writeMetrics = new StageMetrics("write", writerThreads, writeQueue::size);
+
+        running = true;
+        for (int i = 1; i <= lemmatizerThreads; i++) {
+            startWorker("lemmatizer-" + i, this::lemmatizeLoop);
+        }
+        for (int i = 1; i <= writerThreads; i++) {
+            startWorker("index-writer-" + i, this::writeLoop);
+        }
+        System.out.println("Конвейер индексации: потоков лемматизации " + lemmatizerThreads + ", потоков записи " + writerThreads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    public void recordFetch(long nanos) {
+        fetchMetrics.record(1, nanos);
+    }
+
+    /**
+     * Передаёт загруженную страницу на лемматизацию. Блокируется, пока в очереди нет места.
+     * Отметка о завершении страницы в сессии ставится после записи в базу.
+     *
+     * @return false, если обход сайта остановлен и страница не принята
+     */
+    public boolean submit(CrawlSession session, FetchResult fetchResult) throws InterruptedException {
+        Item item = new Item(session, fetchResult);
+        session.writeQueued();
+        try {
+            while (!lemmatizeQueue.offer(item, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                if (session.isCancelled()) {
+                    session.writeFinished();
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            session.writeFinished();
+            throw e;
+        }
+        return true;
+    }
+
+    public List<PipelineStageStats> getStats() {
+        if (fetchMetrics == null) {
+            return Collections.emptyList();
+        }
+        return List.of(fetchMetrics.snapshot(), lemmatizeMetrics.snapshot(), writeMetrics.snapshot());
+    }
+
+    private void startWorker(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        workers.add(thread);
+        thread.start();
+    }
+
+    private void lemmatizeLoop() {
+        while (running) {
+            Item item;
+            try {
+                item = lemmatizeQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            CrawlSession session = item.session;
+            if (session.isCancelled()) {
+                session.writeFinished();
+                continue;
+            }
+            long started = System.nanoTime();
+            try {
+                item.prepared = indexPageService.prepare(session.getSite(), item.fetchResult);
+            } catch (Exception e) {
+                System.out.println("Ошибка лемматизации страницы: " + item.fetchResult.getUrl());
+                e.printStackTrace();
+                session.getJob().error();
+                session.completed(item.fetchResult.getUrl());
+                session.writeFinished();
+                continue;
+            }
+            lemmatizeMetrics.record(1, System.nanoTime() - started);
+            try {
+                writeQueue.put(item);
+            } catch (InterruptedException e) {
+                session.writeFinished();
+                return;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        int batchSize = Math.max(1, crawlerSettings.getWriteBatchSize());
+        List<Item> batch = new ArrayList<>(batchSize);
+        while (running) {
+            Item first;
+            try {
+                first = writeQueue.poll(POLL_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.clear();
+            batch.add(first);
+            writeQueue.drainTo(batch, batchSize - 1);
+            write(batch);
+        }
+    }
+
+    private void write(List<Item> batch) {
+        List<PreparedPage> pages = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            pages.add(item.prepared);
+        }
+        long started = System.nanoTime();
+        List<Boolean> results;
+        try {
+            results = indexPageService.writePages(pages);
+        } catch (Exception e) {
+            System.out.println("Ошибка записи пачки страниц: " + e.getMessage());
+            e.printStackTrace();
+            results = Collections.nCopies(batch.size(), false);
+        }
+        writeMetrics.record(batch.size(), System.nanoTime() - started);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Item item = batch.get(i);
+            String url = item.fetchResult.getUrl();
+            if (results.get(i)) {
+                item.session.getJob().pageIndexed();
+            } else {
+                item.session.getJob().error();
+                System.out.println("Ошибка индексации страницы: " + url);
+            }
+            if (item.fetchResult.getStatusCode() < 500) {
+                item.session.completed(url);
+            }
+            item.session.writeFinished();
+        }
+    }
+
+    private static final class Item {
+        private final CrawlSession session;
+        private final FetchResult fetchResult;
+        private PreparedPage prepared;
+
+        private Item(CrawlSession session, FetchResult fetchResult) {
+            this.session = session;
+            this.fetchResult = fetchResult;
+        }
+    }
+}
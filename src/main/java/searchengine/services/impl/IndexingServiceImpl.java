@@ -1,27 +1,28 @@
 package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.jsoup.select.Elements;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import searchengine.config.*;
 
+import searchengine.dto.indexing.IndexingStatusResponse;
+import searchengine.dto.indexing.SiteCrawlReport;
 import searchengine.dto.search.Response;
 
 
+import searchengine.model.IndexingMode;
 import searchengine.model.Site;
 import searchengine.model.Status;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
-import searchengine.services.interfaces.IndexPageService;
 import searchengine.services.interfaces.IndexingService;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import java.io.IOException;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -34,101 +35,148 @@ public class IndexingServiceImpl implements IndexingService {
 
     private final SitesList sitesList;
 
-    public static volatile boolean isIndexing;
-    private final UserAgent userAgentConfig;
+    private final CrawlEngine crawlEngine;
+    private final CrawlerSettings crawlerSettings;
+    private final DuplicateDetector duplicateDetector;
+    private final LemmaCache lemmaCache;
+    private final IndexingPipeline indexingPipeline;
+    private final IndexGenerations indexGenerations;
+    private final MorphologyProcessorImpl morphologyProcessor;
+    private final LemmaFrequencyBuffer frequencyBuffer;
 
     @PersistenceContext
     private EntityManager entityManager;
 
-    private final Map<String, Boolean> visitedUrls = new ConcurrentHashMap<>();
+    private static final int MAX_STORED_JOBS = 20;
 
-    private final ForkJoinPool pool = new ForkJoinPool(4);
-    ;
-    private ExecutorService executorService;
-
-    @Autowired
-    private IndexPageService indexPageService;
+    private final Map<String, IndexingJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IndexingJob> eldest) {
+            return size() > MAX_STORED_JOBS;
+        }
+    });
 
-    private CrawlPageTask crawlPageTask;
+    private volatile IndexingJob currentJob;
 
     @Override
-    @Transactional
-    public Response startIndexing() {
-        System.out.println("siteRepository: " + siteRepository);
-
-        if (!canStartIndexing()) {
+    public synchronized Response startIndexing(IndexingMode mode) {
+        if (isIndexing()) {
             return new Response(false, "Индексация уже запущена");
         }
-        isIndexing = true;
-        this.executorService = Executors.newFixedThreadPool(5);
 
+        IndexingJob job = new IndexingJob(mode);
+        currentJob = job;
+        jobs.put(job.getId(), job);
+
+        Thread jobThread = new Thread(() -> runJob(job), "indexing-job-" + job.getId());
+        jobThread.setDaemon(true);
+        jobThread.start();
+
+        System.out.println("Запущена задача индексации: " + job.getId() + ", режим: " + mode);
+        Response response = new Response(true, "Индексация запущена");
+        response.setJobId(job.getId());
+        return response;
+    }
+
+    private void runJob(IndexingJob job) {
+        List<SiteConfig> sites = sitesList.getSites();
+        ExecutorService siteExecutor = Executors.newFixedThreadPool(Math.max(1, sites.size()));
         try {
-            for (SiteConfig siteConfig : sitesList.getSites()) {
-                executorService.submit(() -> {
-                    try {
-
-                        Optional<Site> siteOptional = siteRepository.findByUrl(siteConfig.getUrl());
-                        Site site;
-
-                        if (siteOptional.isEmpty()) {
-                            site = new Site(siteConfig.getUrl(), LocalDateTime.now(), siteConfig.getName());
-                            site.setStatusEnum(Status.INDEXING);
-                            site = siteRepository.save(site);
-                        } else {
-                            site = siteOptional.get();
-                            deleteExistingDataForSite(site);
-                            site.setStatusEnum(Status.INDEXING);
-                            site.setTime(LocalDateTime.now());
-                            siteRepository.save(site);
-                            System.out.println("Сайт уже существует, старые данные удалены: " + site.getUrl());
-                        }
-
-
-                        crawlPages(siteConfig.getUrl(), site);
-
-
-                        site.setStatusEnum(Status.INDEXED);
-                        site.setTime(LocalDateTime.now());
-                        siteRepository.save(site);
-                        System.out.println("Индексация завершена для сайта: " + site.getUrl());
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        Optional<Site> failedSite = siteRepository.findByUrl(siteConfig.getUrl());
-                        failedSite.ifPresent(site -> {
-                            site.setStatusEnum(Status.FAILED);
-                            site.setError("Ошибка индексации: " + e.getMessage());
-                            siteRepository.save(site);
-                            System.out.println("Ошибка индексации для сайта: " + site.getUrl());
-                        });
-                    }
+            List<Callable<Void>> siteTasks = new ArrayList<>();
+            for (SiteConfig siteConfig : sites) {
+                siteTasks.add(() -> {
+                    indexSite(siteConfig, job);
+                    return null;
                 });
             }
+            siteExecutor.invokeAll(siteTasks);
+        } catch (InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
         } finally {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(10, TimeUnit.MINUTES)) {
-                    System.out.println("Не удалось завершить индексацию вовремя.");
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-            isIndexing = false;
+            siteExecutor.shutdown();
+            job.finish();
+            System.out.println("Задача индексации " + job.getId() + " завершена со статусом " + job.getState()
+                    + ": загружено " + job.getPagesFetched() + ", проиндексировано " + job.getPagesIndexed()
+                    + ", ошибок " + job.getErrors());
+            System.out.println("Кэш морфологии: " + morphologyProcessor.getCache());
         }
-        return new Response(true, "Индексация успешно завершена");
     }
 
-    private synchronized boolean canStartIndexing() {
-        return !isIndexing;
-    }
+    private void indexSite(SiteConfig siteConfig, IndexingJob job) {
+        IndexingMode mode = job.getMode();
+        try {
+
+            Optional<Site> siteOptional = siteRepository.findByUrl(siteConfig.getUrl());
+            Site site;
+            IndexingMode siteMode = mode == IndexingMode.INCREMENTAL ? mode : IndexingMode.FULL;
+
+            if (siteOptional.isEmpty()) {
+                site = new Site(siteConfig.getUrl(), LocalDateTime.now(), siteConfig.getName());
+                site.setStatusEnum(Status.INDEXING);
+                site = siteRepository.save(site);
+                indexGenerations.startBuild(site);
+            } else if (mode == IndexingMode.RESUME && FrontierLog.exists(frontierDir(), siteOptional.get().getId())) {
+                site = siteOptional.get();
+                site.setStatusEnum(Status.INDEXING);
+                site.setTime(LocalDateTime.now());
+                siteRepository.save(site);
+                siteMode = IndexingMode.RESUME;
+                System.out.println("Продолжаем прерванную индексацию сайта: " + site.getUrl());
+            } else if (mode == IndexingMode.INCREMENTAL) {
+                site = siteOptional.get();
+                FrontierLog.delete(frontierDir(), site.getId());
+                indexGenerations.abandonBuild(site);
+                site.setStatusEnum(Status.INDEXING);
+                site.setTime(LocalDateTime.now());
+                siteRepository.save(site);
+                System.out.println("Повторный обход с условными запросами: " + site.getUrl());
+            } else {
+                site = siteOptional.get();
+                FrontierLog.delete(frontierDir(), site.getId());
+                site.setStatusEnum(Status.INDEXING);
+                site.setTime(LocalDateTime.now());
+                indexGenerations.startBuild(site);
+                System.out.println("Сайт уже существует, до окончания сборки поиск работает по текущим данным: " + site.getUrl());
+            }
+
 
+            crawlPages(siteConfig, site, siteMode, job);
 
-    private void crawlPages(String url, Site site) throws IOException {
-        String userAgent = userAgentConfig.getUser(0);
-        String referrer = userAgentConfig.getReferrer();
+
+            if (job.isCancelled()) {
+                site.setStatusEnum(Status.FAILED);
+                site.setError("Индексация остановлена пользователем");
+            } else {
+                String rejection = indexGenerations.checkBuild(site, startPageKey(siteConfig.getUrl()), crawlerSettings.getMinRebuildPageRatio());
+                if (rejection == null) {
+                    frequencyBuffer.recount(site.getId(), site.getWriteGeneration());
+                    indexGenerations.activate(site);
+                    site.setStatusEnum(Status.INDEXED);
+                } else {
+                    indexGenerations.abandonBuild(site);
+                    site.setStatusEnum(Status.FAILED);
+                    site.setError("Новое поколение индекса не принято (" + rejection + "), поиск работает по прежним данным");
+                    System.out.println("Сайт " + site.getUrl() + ": сборка отклонена, " + rejection);
+                }
+            }
+            site.setTime(LocalDateTime.now());
+            siteRepository.save(site);
+            System.out.println("Индексация завершена для сайта: " + site.getUrl() + ", статус: " + site.getStatusEnum());
+        } catch (Exception e) {
+            e.printStackTrace();
+            Optional<Site> failedSite = siteRepository.findByUrl(siteConfig.getUrl());
+            failedSite.ifPresent(site -> {
+                site.setStatusEnum(Status.FAILED);
+                site.setError("Ошибка индексации: " + e.getMessage());
+                siteRepository.save(site);
+                System.out.println("Ошибка индексации для сайта: " + site.getUrl());
+            });
+        }
+    }
 
 
+    private void crawlPages(SiteConfig siteConfig, Site site, IndexingMode mode, IndexingJob job) throws InterruptedException, IOException {
         Optional<Site> siteOptional = siteRepository.findByUrl(site.getUrl());
         if (siteOptional.isEmpty()) {
             System.out.println("Сайт не найден в базе данных: " + site.getUrl());
@@ -139,58 +187,75 @@ public class IndexingServiceImpl implements IndexingService {
         System.out.println("Обнаружен существующий сайт: " + existingSite.getUrl());
 
 
-        Queue<String> urlsToVisit = new LinkedList<>();
-        urlsToVisit.add(url);
-
-        while (!urlsToVisit.isEmpty()) {
-            String currentUrl = urlsToVisit.poll();
-
-            if (visitedUrls.containsKey(currentUrl)) {
-                continue;
-            }
-            visitedUrls.put(currentUrl, true);
-
+        VisitedUrlSet visitedUrls = new VisitedUrlSet(crawlerSettings.getExpectedUrlsPerSite(), crawlerSettings.isVisitedBloomFilter());
+        UrlCanonicalizer urlCanonicalizer = new UrlCanonicalizer(crawlerSettings.getStripQueryParams(), crawlerSettings.getSkipExtensions());
+        FrontierLog frontierLog = FrontierLog.open(frontierDir(), existingSite.getId());
+        CrawlBudget budget = CrawlBudget.of(siteConfig, crawlerSettings);
+        CrawlSession session = new CrawlSession(existingSite, siteConfig, visitedUrls, urlCanonicalizer, frontierLog, mode, job, budget);
+        System.out.println("Ограничения обхода сайта " + existingSite.getUrl() + ": " + budget);
+        if (mode == IndexingMode.RESUME) {
+            Map<String, Integer> pendingUrls = frontierLog.replay(visitedUrls);
+            session.restore(pendingUrls);
+            System.out.println("Восстановлено из журнала: посещено " + visitedUrls.size() + ", в очереди " + pendingUrls.size());
+        }
+        int writeGeneration = existingSite.getWriteGeneration();
+        lemmaCache.acquire(existingSite.getId(), writeGeneration);
+        duplicateDetector.acquire(existingSite.getId(), writeGeneration);
+        job.register(session);
+        RuntimeException frequencyError = null;
+        try {
+            crawlEngine.crawl(session, siteConfig.getUrl());
+        } finally {
+            job.unregister(session);
+            frontierLog.close();
+            SiteCrawlReport report = session.report();
+            System.out.println("Посещено адресов: " + visitedUrls.size() + ", отклонено ссылок: " + session.getRejectedUrls()
+                    + ", запрещено robots.txt: " + session.getDisallowedUrls()
+                    + ", отсечено по глубине/числу страниц/времени: " + report.getCutByDepth()
+                    + "/" + report.getCutByPageLimit() + "/" + report.getCutByTime()
+                    + ", память: " + visitedUrls.memoryFootprintBytes() / 1024 + " КБ, сайт: " + existingSite.getUrl());
+            visitedUrls.release();
             try {
-                boolean indexed = indexPageService.indexPage(currentUrl);
-                if (!indexed) {
-                    System.out.println("Ошибка индексации страницы: " + currentUrl);
-                    continue;
-                }
-
-                CrawlPageTask crawlPageTask = new CrawlPageTask(currentUrl, existingSite, pageRepository, siteRepository, visitedUrls, userAgent, referrer);
-                Elements elements = crawlPageTask.getElements(currentUrl);
-                List<String> newLinks = crawlPageTask.extractNewLinks(elements);
-
-                for (String link : newLinks) {
-                    if (!visitedUrls.containsKey(link)) {
-                        urlsToVisit.add(link);
-                    }
-                }
-            } catch (Exception e) {
-                System.out.println("Ошибка при обработке страницы: " + currentUrl);
-                e.printStackTrace();
+                frequencyBuffer.flush(existingSite.getId());
+            } catch (RuntimeException e) {
+                frequencyError = e;
             }
+            duplicateDetector.release(existingSite.getId(), writeGeneration);
+            lemmaCache.release(existingSite.getId(), writeGeneration);
+            System.out.println("Страниц-копий: " + pageRepository.countDuplicatesBySiteId(existingSite.getId(), existingSite.getWriteGeneration()) + ", сайт: " + existingSite.getUrl());
+            indexingPipeline.getStats().forEach(stage -> System.out.println("Стадия " + stage.getName()
+                    + ": обработано " + stage.getProcessed() + ", в очереди " + stage.getQueued()
+                    + ", среднее время " + String.format("%.1f", stage.getAvgMillis()) + " мс"));
         }
+        if (frequencyError != null) {
+            throw new IllegalStateException("не записаны частоты лемм: " + frequencyError.getMessage(), frequencyError);
+        }
+        if (!session.isCancelled()) {
+            FrontierLog.delete(frontierDir(), existingSite.getId());
+        }
+    }
+
+    private String startPageKey(String startUrl) {
+        String canonicalUrl = new UrlCanonicalizer(crawlerSettings.getStripQueryParams(), crawlerSettings.getSkipExtensions())
+                .canonicalize(startUrl);
+        return canonicalUrl == null ? "/" : UrlCanonicalizer.pageKey(canonicalUrl);
     }
 
-    private void deleteExistingDataForSite(Site site) {
-        System.out.println("Удаляем старые данные для сайта: " + site.getUrl() + " с ID: " + site.getId());
-        pageRepository.deleteAll(pageRepository.findAllBySiteId(site.getId()));
-        System.out.println("Старые страницы удалены для сайта: " + site.getUrl());
+    private Path frontierDir() {
+        return Path.of(crawlerSettings.getFrontierDir());
     }
 
 
     @Override
     public Response stopIndexing() {
-        if (!isIndexing) {
+        IndexingJob job = currentJob;
+        if (job == null || !job.isRunning()) {
             return new Response(false, "Индексация не запущена");
         }
 
         try {
-            if (executorService != null && !executorService.isShutdown()) {
-                executorService.shutdownNow();
-                System.out.println("Все потоки индексации остановлены.");
-            }
+            job.cancel();
+            System.out.println("Задача индексации " + job.getId() + " отменяется, загрузки завершатся после текущих страниц.");
 
             List<Site> sitesInProgress = siteRepository.findByStatusEnum(Status.INDEXING);
             for (Site site : sitesInProgress) {
@@ -198,10 +263,9 @@ public class IndexingServiceImpl implements IndexingService {
                 site.setError("Индексация остановлена пользователем");
                 siteRepository.save(site);
             }
-            isIndexing = false;
-            executorService = null;
-            visitedUrls.clear();
-            return new Response(true, "Индексация остановлена успешно");
+            Response response = new Response(true, "Индексация остановлена успешно");
+            response.setJobId(job.getId());
+            return response;
         } catch (Exception e) {
             e.printStackTrace();
             return new Response(false, "Ошибка при остановке индексации: " + e.getMessage());
@@ -210,7 +274,33 @@ public class IndexingServiceImpl implements IndexingService {
 
     @Override
     public boolean isIndexing() {
-        return isIndexing;
+        IndexingJob job = currentJob;
+        return job != null && job.isRunning();
+    }
+
+    @Override
+    public IndexingStatusResponse getStatus(String jobId) {
+        IndexingJob job = jobId == null || jobId.isBlank() ? currentJob : jobs.get(jobId);
+        IndexingStatusResponse response = new IndexingStatusResponse();
+        if (job == null) {
+            response.setResult(false);
+            response.setError("Задача индексации не найдена");
+            return response;
+        }
+        response.setResult(true);
+        response.setJobId(job.getId());
+        response.setMode(job.getMode().toString());
+        response.setState(job.getState().toString());
+        response.setStartedAt(job.getStartedAt().toEpochSecond(ZoneOffset.UTC));
+        response.setFinishedAt(job.getFinishedAt() != null ? job.getFinishedAt().toEpochSecond(ZoneOffset.UTC) : null);
+        response.setPagesFetched(job.getPagesFetched());
+        response.setPagesQueued(job.getPagesQueued());
+        response.setPagesIndexed(job.getPagesIndexed());
+        response.setErrors(job.getErrors());
+        response.setPagesPerSecond(job.getPagesPerSecond());
+        response.setSites(job.getSiteReports());
+        response.setPipeline(indexingPipeline.getStats());
+        return response;
     }
 
 }
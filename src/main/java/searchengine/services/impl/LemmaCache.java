@@ -0,0 +1,63 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.GenerationCache;
+import searchengine.config.LemmaDictionary;
+
+/**
+ * Словари лемм по сайтам и поколениям. Словарь загружается одним запросом при
+ * захвате: на время обхода сайта или индексации отдельной страницы, и
+ * освобождается, когда его больше никто не держит. При смене поколения
+ * сайта словари его поколений удаляются.
+ */
+@Component
+@RequiredArgsConstructor
+public class LemmaCache {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GenerationCache<LemmaDictionary> dictionaries = new GenerationCache<>(this::load);
+
+    public void acquire(int siteId, int generation) {
+        dictionaries.acquire(siteId, generation);
+    }
+
+    public void release(int siteId, int generation) {
+        LemmaDictionary dictionary = dictionaries.release(siteId, generation);
+        if (dictionary != null) {
+            logStats(siteId, dictionary);
+        }
+    }
+
+    /**
+     * Удаляет словари всех поколений сайта, например при смене поколения.
+     */
+    public void evict(int siteId) {
+        dictionaries.evict(siteId).forEach(dictionary -> logStats(siteId, dictionary));
+    }
+
+    /**
+     * Словарь поколения, захваченного через {@link #acquire}. Без захвата словарь
+     * загружается только для этого вызова и не сохраняется.
+     */
+    public LemmaDictionary forSite(int siteId, int generation) {
+        LemmaDictionary dictionary = dictionaries.get(siteId, generation);
+        return dictionary != null ? dictionary : load(siteId, generation);
+    }
+
+    private void logStats(int siteId, LemmaDictionary dictionary) {
+        System.out.println("Словарь лемм сайта " + siteId + ": " + dictionary.size() + " лемм, попаданий "
+                + dictionary.getHits() + ", промахов " + dictionary.getMisses());
+    }
+
+    private LemmaDictionary load(int siteId, int generation) {
+        LemmaDictionary dictionary = new LemmaDictionary();
+        jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ? AND generation = ?",
+                rs -> {
+                    dictionary.put(BulkIndexWriter.lookupKey(rs.getString("lemma")), rs.getInt("id"));
+                }, siteId, generation);
+        System.out.println("Загружен словарь лемм сайта " + siteId + ": " + dictionary.size());
+        return dictionary;
+    }
+}
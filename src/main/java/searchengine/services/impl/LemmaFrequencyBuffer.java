@@ -0,0 +1,143 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.CrawlerSettings;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись частот лемм. Частота леммы - число страниц, на которых она встречается.
+ * Транзакции записи индекса не обновляют строки lemma, а добавляют изменения частот
+ * в счётчики по сайтам (после фиксации транзакции). Счётчики сбрасываются в базу
+ * периодически и по окончании обхода сайта одним пакетом на сайт, поэтому частые
+ * леммы больше не становятся точкой конкуренции за блокировки строк.
+ * Изменения в памяти теряются при аварийной остановке, поэтому по окончании обхода
+ * частоты поколения пересчитываются по page_lemma, см. {@link #recount}.
+ */
+@Component
+@RequiredArgsConstructor
+public class LemmaFrequencyBuffer {
+
+    private static final String ADJUST_FREQUENCY = "UPDATE lemma SET frequency = GREATEST(0, frequency + ?) WHERE id = ?";
+    private static final String RECOUNT_FREQUENCY = "UPDATE lemma l " +
+            "SET l.frequency = (SELECT COUNT(*) FROM page_lemma pl WHERE pl.lemma_id = l.id) " +
+            "WHERE l.site_id = ? AND l.generation = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CrawlerSettings crawlerSettings;
+    private final Map<Integer, ConcurrentHashMap<Integer, Integer>> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        long intervalMs = Math.max(100, crawlerSettings.getFrequencyFlushInterval().toMillis());
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lemma-frequency-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        flushAll();
+    }
+
+    /**
+     * Добавляет изменения частот lemma id -> число страниц. Внутри транзакции
+     * изменения учитываются только после её успешной фиксации.
+     */
+    public void add(int siteId, Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            merge(siteId, deltas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                merge(siteId, deltas);
+            }
+        });
+    }
+
+    public void flushAll() {
+        for (Integer siteId : pending.keySet()) {
+            try {
+                flush(siteId);
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка записи частот лемм сайта " + siteId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Записывает накопленные частоты сайта одной транзакцией. Строки обновляются
+     * в порядке id, чтобы параллельные сбросы не блокировали друг друга.
+     * Изменения, добавленные во время сброса, попадут в следующий.
+     */
+    public synchronized void flush(int siteId) {
+        ConcurrentHashMap<Integer, Integer> counters = pending.get(siteId);
+        if (counters == null || counters.isEmpty()) {
+            return;
+        }
+        TreeMap<Integer, Integer> drained = new TreeMap<>();
+        for (Integer lemmaId : counters.keySet()) {
+            Integer delta = counters.remove(lemmaId);
+            if (delta != null && delta != 0) {
+                drained.put(lemmaId, delta);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(drained.size());
+        drained.forEach((lemmaId, delta) -> rows.add(new Object[]{delta, lemmaId}));
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(ADJUST_FREQUENCY, rows));
+        } catch (RuntimeException e) {
+            merge(siteId, drained);
+            throw e;
+        }
+    }
+
+    /**
+     * Пересчитывает частоты всех лемм поколения по строкам page_lemma одним запросом.
+     * Вызывается, когда запись страниц сайта закончена: исправляет частоты, изменения
+     * которых не дошли до базы (остановка приложения, сбой сброса, обход продолжен
+     * через RESUME). Накопленные изменения сайта отбрасываются - пересчёт их уже учитывает.
+     */
+    public synchronized void recount(int siteId, int generation) {
+        pending.remove(siteId);
+        int lemmas = new TransactionTemplate(transactionManager).execute(status ->
+                jdbcTemplate.update(RECOUNT_FREQUENCY, siteId, generation));
+        System.out.println("Частоты лемм сайта " + siteId + " пересчитаны по индексу, поколение " + generation + ", лемм " + lemmas);
+    }
+
+    private void merge(int siteId, Map<Integer, Integer> deltas) {
+        ConcurrentHashMap<Integer, Integer> counters = pending.computeIfAbsent(siteId, id -> new ConcurrentHashMap<>());
+        deltas.forEach((lemmaId, delta) -> counters.merge(lemmaId, delta, Integer::sum));
+    }
+}
@@ -4,12 +4,15 @@ import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.MorphologyCache;
+import searchengine.config.TextTokenizer;
+import searchengine.config.WordForms;
 import searchengine.services.interfaces.MorphologyProcessor;
 
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Component
 public class MorphologyProcessorImpl implements MorphologyProcessor {
@@ -18,64 +21,78 @@ public class MorphologyProcessorImpl implements MorphologyProcessor {
     private final LuceneMorphology luceneMorphologyEn;
     private static final String[] PARTICLE_NAMES = {"МЕЖД", "ПРЕДЛ", "СОЮЗ", "ЧАСТ", "ARTICLE", "CONJ", "PREP"};
 
-    public MorphologyProcessorImpl() throws IOException {
+    private final MorphologyCache cache;
+
+    public MorphologyProcessorImpl(CrawlerSettings crawlerSettings) throws IOException {
         this.luceneMorphologyRu = new RussianLuceneMorphology();
         this.luceneMorphologyEn = new EnglishLuceneMorphology();
+        this.cache = new MorphologyCache(crawlerSettings.getMorphologyCacheSize());
     }
 
     @Override
     public List<String> getWords(String text) {
-        return Arrays.stream(text.split("\\P{IsAlphabetic}+"))
-                .filter(word -> !word.isBlank())
-                .collect(Collectors.toList());
+        List<String> words = new ArrayList<>();
+        TextTokenizer.tokenize(text, words::add);
+        return words;
     }
 
+    /**
+     * Возвращает неизменяемый список нормальных форм; для служебных частей речи - пустой список.
+     */
     @Override
     public List<String> getNormalFormsWords(String word) {
-        List<String> normalForms = new ArrayList<>();
+        WordForms forms = cache.get(word, this::analyze);
+        return forms.isFunctionWord() ? Collections.emptyList() : forms.getNormalForms();
+    }
+
+    @Override
+    public boolean checkString(String text) {
+        return text != null && !text.isBlank();
+    }
+
+    public MorphologyCache getCache() {
+        return cache;
+    }
+
+    private WordForms analyze(String word) {
+        LuceneMorphology morphology = morphologyFor(word);
+        if (morphology == null) {
+            return new WordForms(List.of(word), false);
+        }
         try {
-            List<String> baseForms = getNormalForms(word);
+            List<String> baseForms = morphology.getNormalForms(word);
             for (String baseForm : baseForms) {
-                List<String> wordInfo = getMorphInfo(baseForm);
-
+                List<String> wordInfo = morphology.getMorphInfo(baseForm);
                 if (anyWordBaseBelongToParticle(wordInfo)) {
                     System.out.println("Исключено слово (служебная часть речи): " + baseForm + " " + wordInfo);
-                    return Collections.emptyList();
+                    return WordForms.FUNCTION_WORD;
                 }
-                normalForms.add(baseForm);
             }
+            return new WordForms(baseForms.isEmpty() ? List.of(word) : baseForms, false);
         } catch (Exception e) {
             e.printStackTrace();
+            return new WordForms(List.of(word), false);
         }
-
-        if (normalForms.isEmpty()) {
-            normalForms.add(word);
-        }
-
-        return normalForms;
     }
 
-    @Override
-    public boolean checkString(String text) {
-        return text != null && !text.isBlank();
-    }
-
-    private List<String> getMorphInfo(String word) {
-        if (word.matches("[а-яё]+")) {
-            return luceneMorphologyRu.getMorphInfo(word);
-        } else if (word.matches("[a-z]+")) {
-            return luceneMorphologyEn.getMorphInfo(word);
+    /**
+     * Словарь по алфавиту слова: только строчная кириллица - русский, только строчная латиница - английский.
+     */
+    private LuceneMorphology morphologyFor(String word) {
+        if (word.isEmpty()) {
+            return null;
         }
-        return new ArrayList<>();
-    }
-
-    private List<String> getNormalForms(String word) {
-        if (word.matches("[а-яё]+")) {
-            return luceneMorphologyRu.getNormalForms(word);
-        } else if (word.matches("[a-z]+")) {
-            return luceneMorphologyEn.getNormalForms(word);
+        boolean cyrillic = true;
+        boolean latin = true;
+        for (int i = 0; i < word.length() && (cyrillic || latin); i++) {
+            char c = word.charAt(i);
+            cyrillic &= (c >= 'а' && c <= 'я') || c == 'ё';
+            latin &= c >= 'a' && c <= 'z';
+        }
+        if (cyrillic) {
+            return luceneMorphologyRu;
         }
-        return new ArrayList<>();
+        return latin ? luceneMorphologyEn : null;
     }
 
     private boolean anyWordBaseBelongToParticle(List<String> wordBaseForms) {
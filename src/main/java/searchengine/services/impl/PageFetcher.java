@@ -0,0 +1,396 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FetchResult;
+import searchengine.config.UserAgent;
+import searchengine.model.Page;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Единственная точка загрузки данных из сети. Общий HttpClient держит пул
+ * keep-alive соединений (и HTTP/2, если сервер его поддерживает), поэтому
+ * запросы к одному хосту не устанавливают соединение заново.
+ * Всем запросам выставляются User-Agent и Referer из настроек user-agent-settings.
+ * Ответ целиком, вместе с телом, должен быть получен за connect-timeout-ms + read-timeout-ms,
+ * иначе загрузка прерывается с {@link HttpTimeoutException}.
+ * Клиент работает на небольшом фиксированном пуле потоков, поэтому число потоков
+ * не растёт вместе с числом одновременных загрузок.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageFetcher {
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private final UserAgent userAgentConfig;
+    private final CrawlerSettings crawlerSettings;
+
+    private HttpClient httpClient;
+    private ExecutorService clientExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "http-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .version(crawlerSettings.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(crawlerSettings.getConnectTimeoutMs()))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clientExecutor.shutdownNow();
+    }
+
+    public FetchResult fetch(String url) throws IOException {
+        return fetch(url, null);
+    }
+
+    /**
+     * Условный запрос: если у ранее сохранённой страницы есть ETag или Last-Modified,
+     * сервер может ответить 304 без тела.
+     * Тело ответа с типом, отличным от HTML, не загружается, размер тела ограничен max-body-size.
+     */
+    public FetchResult fetch(String url, Page previous) throws IOException {
+        return await(url, fetchAsync(url, previous));
+    }
+
+    /**
+     * Асинхронный вариант {@link #fetch(String, Page)}: поток не ждёт ответа.
+     * Ошибки загрузки завершают результат с IOException внутри CompletionException.
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url, Page previous) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (previous != null) {
+            if (previous.getEtag() != null) {
+                headers.put("If-None-Match", previous.getEtag());
+            }
+            if (previous.getLastModified() != null) {
+                headers.put("If-Modified-Since", previous.getLastModified());
+            }
+        }
+        return execute(url, headers, crawlerSettings.getMaxBodySize(), true);
+    }
+
+    /**
+     * Загрузка служебных файлов (robots.txt, карты сайта) без проверки типа содержимого.
+     */
+    public FetchResult fetchRaw(String url, int maxBodySize) throws IOException {
+        return await(url, execute(url, Map.of(), maxBodySize, false));
+    }
+
+    private static FetchResult await(String url, CompletableFuture<FetchResult> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Загрузка прервана: " + url);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Ошибка загрузки: " + url, cause);
+        }
+    }
+
+    private CompletableFuture<FetchResult> execute(String url, Map<String, String> extraHeaders, int maxBodySize, boolean htmlOnly) {
+        URI uri;
+        try {
+            uri = toUri(url);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(Duration.ofMillis(crawlerSettings.getReadTimeoutMs()))
+                .header("User-Agent", userAgentConfig.getUser(0))
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+        if (userAgentConfig.getReferrer() != null) {
+            request.header("Referer", userAgentConfig.getReferrer());
+        }
+        extraHeaders.forEach(request::header);
+
+        return send(url, request.build(), maxBodySize, htmlOnly).thenApply(response -> {
+            try {
+                return toFetchResult(url, response, maxBodySize, htmlOnly);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static FetchResult toFetchResult(String url, HttpResponse<byte[]> response, int maxBodySize, boolean htmlOnly) throws IOException {
+        String baseUrl = response.uri().toString();
+        Map<String, String> headers = flatten(response.headers());
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+
+        if (htmlOnly && !FetchResult.isHtmlContentType(contentType)) {
+            return new FetchResult(url, baseUrl, response.statusCode(), headers, new byte[0], null);
+        }
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        byte[] body = decode(response.body(), encoding, maxBodySize);
+        return new FetchResult(url, baseUrl, response.statusCode(), headers, body, charsetOf(contentType));
+    }
+
+    /**
+     * Таймаут запроса HttpClient ограничивает только ожидание заголовков ответа, поэтому
+     * на весь обмен, включая чтение тела, ставится общий срок. Сервер, который отдаёт тело
+     * по байту или замолкает посреди ответа, не держит поток обхода, слот хоста и общее
+     * разрешение на загрузку дольше этого срока.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(String url, HttpRequest request, int maxBodySize, boolean htmlOnly) {
+        AtomicReference<LimitedBodySubscriber> subscriber = new AtomicReference<>();
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(request, info -> {
+            String contentType = info.headers().firstValue("Content-Type").orElse(null);
+            LimitedBodySubscriber body = new LimitedBodySubscriber(
+                    htmlOnly && !FetchResult.isHtmlContentType(contentType) ? LimitedBodySubscriber.DISCARD : maxBodySize);
+            subscriber.set(body);
+            return body;
+        });
+        long deadlineMs = (long) crawlerSettings.getConnectTimeoutMs() + crawlerSettings.getReadTimeoutMs();
+        CompletableFuture<HttpResponse<byte[]>> result = exchange.copy().orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                abort(exchange, subscriber.get());
+            }
+        });
+        return result.handle((response, error) -> {
+            if (error == null) {
+                return response;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                throw new CompletionException(new HttpTimeoutException("Ответ не получен за " + deadlineMs + " мс: " + url));
+            }
+            if (cause instanceof IOException) {
+                throw new CompletionException(cause);
+            }
+            throw new CompletionException(new IOException("Ошибка загрузки: " + url, cause));
+        });
+    }
+
+    private static void abort(CompletableFuture<?> future, LimitedBodySubscriber subscriber) {
+        if (subscriber != null) {
+            subscriber.cancel();
+        }
+        future.cancel(true);
+    }
+
+    private static URI toUri(String url) throws IOException {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректный адрес: " + url, e);
+        }
+    }
+
+    private static Map<String, String> flatten(HttpHeaders httpHeaders) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : httpHeaders.map().entrySet()) {
+            if (header.getKey().startsWith(":")) {
+                continue;
+            }
+            headers.put(header.getKey(), String.join(", ", header.getValue()));
+        }
+        return headers;
+    }
+
+    /**
+     * Читает не больше limit байт (0 - без ограничения); остаток ответа отбрасывается.
+     */
+    private static byte[] readLimited(InputStream stream, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        try {
+            while ((read = stream.read(buffer)) != -1) {
+                if (limit > 0 && out.size() + read >= limit) {
+                    out.write(buffer, 0, limit - out.size());
+                    break;
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (EOFException e) {
+            // сжатые данные, обрезанные по max-body-size, распаковываются частично
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(byte[] raw, String encoding, int limit) throws IOException {
+        switch (encoding) {
+            case "gzip", "x-gzip" -> {
+                try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(raw))) {
+                    return readLimited(gzip, limit);
+                }
+            }
+            case "deflate" -> {
+                try {
+                    return inflate(raw, false, limit);
+                } catch (DataFormatException e) {
+                    // часть серверов отдаёт deflate без zlib-заголовка
+                    try {
+                        return inflate(raw, true, limit);
+                    } catch (DataFormatException ex) {
+                        throw new IOException("Некорректные данные deflate", ex);
+                    }
+                }
+            }
+            default -> {
+                return raw;
+            }
+        }
+    }
+
+    private static byte[] inflate(byte[] raw, boolean nowrap, int limit) throws DataFormatException {
+        Inflater inflater = new Inflater(nowrap);
+        try {
+            inflater.setInput(raw);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length * 4);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            while (!inflater.finished() && (limit <= 0 || out.size() < limit)) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, limit > 0 ? Math.min(count, limit - out.size()) : count);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Собирает тело ответа не больше limit байт (0 - без ограничения); после лимита
+     * подписка отменяется, и остаток ответа не читается. При limit = DISCARD тело не читается вовсе.
+     */
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        static final int DISCARD = -1;
+
+        private final int limit;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        private LimitedBodySubscriber(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (limit == DISCARD) {
+                subscription.cancel();
+                result.complete(new byte[0]);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                int count = buffer.remaining();
+                if (limit > 0 && out.size() + count >= limit) {
+                    count = limit - out.size();
+                }
+                byte[] chunk = new byte[count];
+                buffer.get(chunk);
+                out.write(chunk, 0, count);
+                if (limit > 0 && out.size() >= limit) {
+                    subscription.cancel();
+                    result.complete(out.toByteArray());
+                    return;
+                }
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(out.toByteArray());
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+            result.cancel(false);
+        }
+    }
+
+    private static String charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String charset = trimmed.substring("charset=".length()).trim();
+                return charset.replace("\"", "").replace("'", "");
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.SiteConfig;
+import searchengine.config.TokenBucket;
+import searchengine.config.UrlCanonicalizer;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает нагрузку на каждый хост: не больше заданного числа
+ * одновременных запросов и не чаще заданного числа запросов в секунду.
+ * Планировщик не блокирует потоки сам, а сообщает, сколько ждать,
+ * чтобы слоты загрузки в это время доставались другим хостам.
+ */
+@Component
+@RequiredArgsConstructor
+public class PolitenessScheduler {
+
+    private static final long BUSY_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final CrawlerSettings crawlerSettings;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public void configure(SiteConfig siteConfig) {
+        String host = hostOf(siteConfig.getUrl());
+        if (host == null) {
+            return;
+        }
+        int maxConcurrentRequests = siteConfig.getMaxConcurrentRequests() != null
+                ? siteConfig.getMaxConcurrentRequests()
+                : crawlerSettings.getDefaultMaxConcurrentRequests();
+        double requestsPerSecond = siteConfig.getRequestsPerSecond() != null
+                ? siteConfig.getRequestsPerSecond()
+                : crawlerSettings.getDefaultRequestsPerSecond();
+        hosts.put(host, new HostState(maxConcurrentRequests, requestsPerSecond));
+    }
+
+    /**
+     * Crawl-delay из robots.txt: интервал между запросами к хосту не меньше заданного,
+     * даже если в настройках сайта указана большая частота.
+     */
+    public void applyCrawlDelay(String host, double delaySeconds) {
+        if (host == null || delaySeconds <= 0) {
+            return;
+        }
+        HostState state = stateOf(host);
+        double rate = 1.0 / delaySeconds;
+        synchronized (state) {
+            double currentRate = state.bucket.getRatePerSecond();
+            if (currentRate <= 0 || rate < currentRate) {
+                state.bucket.setRate(rate, 1);
+                System.out.println("Crawl-delay " + delaySeconds + " с для хоста " + host);
+            }
+        }
+    }
+
+    /**
+     * @return 0, если слот для хоста выделен (его нужно вернуть через {@link #release(String)}),
+     * иначе рекомендуемое время ожидания в наносекундах
+     */
+    public long tryAcquire(String host) {
+        HostState state = stateOf(host);
+        synchronized (state) {
+            if (state.inFlight >= state.maxInFlight) {
+                return BUSY_WAIT_NANOS;
+            }
+            long waitNanos = state.bucket.tryConsume();
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            state.inFlight++;
+            return 0;
+        }
+    }
+
+    public void release(String host) {
+        HostState state = stateOf(host);
+        synchronized (state) {
+            state.inFlight = Math.max(0, state.inFlight - 1);
+        }
+    }
+
+    /**
+     * Ключ ограничений хоста. Хост приводится так же, как при проверке принадлежности
+     * ссылки сайту: ссылки на www.example.com расходуют лимиты сайта example.com,
+     * а не получают отдельный хост с ограничениями по умолчанию.
+     */
+    public static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host == null ? null : UrlCanonicalizer.siteHost(host);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private HostState stateOf(String host) {
+        String key = host == null ? "" : host;
+        return hosts.computeIfAbsent(key, h -> new HostState(
+                crawlerSettings.getDefaultMaxConcurrentRequests(),
+                crawlerSettings.getDefaultRequestsPerSecond()));
+    }
+
+    private static final class HostState {
+        private final int maxInFlight;
+        private final TokenBucket bucket;
+        private int inFlight;
+
+        private HostState(int maxInFlight, double requestsPerSecond) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            this.bucket = new TokenBucket(requestsPerSecond, Math.max(1, requestsPerSecond));
+        }
+    }
+}
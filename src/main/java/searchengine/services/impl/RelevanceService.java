@@ -1,11 +1,12 @@
 package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.jsoup.Jsoup;
 import org.springframework.stereotype.Service;
+import searchengine.config.PageText;
 import searchengine.dto.search.SearchResultItem;
 import searchengine.model.Page;
 import searchengine.model.Site;
+import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageLemmaRepository;
 
 import java.util.*;
@@ -16,6 +17,7 @@ import java.util.stream.Collectors;
 public class RelevanceService {
 
     private final PageLemmaRepository pageLemmaRepository;
+    private final LemmaRepository lemmaRepository;
     private final SnippetService snippetService;
 
     public Map<String, Integer> filterFrequentLemmas(Map<String, Integer> lemmas, List<Site> sites) {
@@ -39,37 +41,39 @@ public class RelevanceService {
 
         return pageLemmaRepository.findPagesByLemmasAndSites(lemmas, siteIds)
                 .stream()
-                .filter(page -> containsLemmaInContent(page.getContent(), lemmas))
+                .filter(page -> containsLemmaInText(PageText.of(page).getIndexedText(), lemmas))
                 .collect(Collectors.toList());
     }
 
-    private boolean containsLemmaInContent(String content, List<String> lemmas) {
-        if (content == null || content.isEmpty()) {
+    private boolean containsLemmaInText(String text, List<String> lemmas) {
+        if (text == null || text.isEmpty()) {
             return false;
         }
-        String plainText = Jsoup.parse(content).text().toLowerCase();
+        String plainText = text.toLowerCase();
         return lemmas.stream().anyMatch(lemma -> plainText.contains(lemma.toLowerCase()));
     }
 
     public List<SearchResultItem> buildSearchResults(List<Page> pages, Map<String, Integer> queryLemmas, Integer offset, Integer limit) {
         Set<String> lemmas = queryLemmas.keySet();
+        Map<Integer, Double> relevanceByPage = calculateRelevance(pages, lemmas);
         double maxRelevance = pages.stream()
-                .mapToDouble(page -> calculateRelevance(page, lemmas))
+                .mapToDouble(page -> relevanceByPage.getOrDefault(page.getId(), 0.0))
                 .max()
                 .orElse(1.0);
 
         return pages.stream()
                 .map(page -> {
-                    double relevance = calculateRelevance(page, lemmas);
+                    double relevance = relevanceByPage.getOrDefault(page.getId(), 0.0);
                     if (relevance == 0.0) return null;
 
-                    String snippet = snippetService.buildSnippet(Jsoup.parse(page.getContent()).text(), lemmas);
+                    PageText pageText = PageText.of(page);
+                    String snippet = snippetService.buildSnippet(pageText.getText(), lemmas);
 
                     return new SearchResultItem(
                             page.getSite().getUrl(),
                             sanitizeUri(page.getUrl()),
                             page.getSite().getName(),
-                            Jsoup.parse(page.getContent()).title(),
+                            pageText.getTitle(),
                             snippet,
                             relevance / maxRelevance
                     );
@@ -79,13 +83,29 @@ public class RelevanceService {
                 .collect(Collectors.toList());
     }
 
-    private double calculateRelevance(Page page, Set<String> lemmas) {
-        return lemmas.stream()
-                .mapToDouble(lemma -> pageLemmaRepository.getRankForPage(page.getId(), lemma)
-                        .stream()
-                        .findFirst()
-                        .orElse(0.0F))
-                .sum();
+    /**
+     * Абсолютная релевантность всех найденных страниц двумя запросами: id лемм запроса
+     * на сайтах страниц, затем сумма rank по страницам с группировкой в базе.
+     * Запрос считает все страницы этих сайтов с леммами запроса, в том числе отброшенные
+     * при поиске по тексту; максимум берётся только по переданному списку страниц.
+     */
+    private Map<Integer, Double> calculateRelevance(List<Page> pages, Set<String> lemmas) {
+        if (pages.isEmpty() || lemmas.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Integer> siteIds = pages.stream()
+                .map(page -> page.getSite().getId())
+                .distinct()
+                .collect(Collectors.toList());
+        List<Integer> lemmaIds = lemmaRepository.findIdsByLemmasAndSites(lemmas, siteIds);
+        if (lemmaIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Double> relevance = new HashMap<>();
+        for (Object[] row : pageLemmaRepository.sumRanksByPage(lemmaIds, siteIds)) {
+            relevance.put((Integer) row[0], ((Number) row[1]).doubleValue());
+        }
+        return relevance;
     }
 
     private String sanitizeUri(String uri) {
@@ -0,0 +1,86 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FetchResult;
+import searchengine.config.RobotsRules;
+import searchengine.config.UserAgent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Загружает robots.txt один раз на хост и хранит разобранные правила.
+ * Если файла нет (4xx) или его не удалось получить, обход не ограничивается.
+ */
+@Component
+@RequiredArgsConstructor
+public class RobotsTxtService {
+
+    private static final int MAX_ROBOTS_BYTES = 512 * 1024;
+
+    private final UserAgent userAgentConfig;
+    private final CrawlerSettings crawlerSettings;
+    private final PageFetcher pageFetcher;
+    private final Map<String, RobotsRules> cache = new ConcurrentHashMap<>();
+
+    public RobotsRules getRules(String url) {
+        if (!crawlerSettings.isRespectRobotsTxt()) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        String origin = originOf(url);
+        if (origin == null) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        return cache.computeIfAbsent(origin, this::load);
+    }
+
+    public void evict(String url) {
+        String origin = originOf(url);
+        if (origin != null) {
+            cache.remove(origin);
+        }
+    }
+
+    public String getRobotName() {
+        String user = userAgentConfig.getUser(0);
+        int slash = user.indexOf('/');
+        return (slash > 0 ? user.substring(0, slash) : user).trim();
+    }
+
+    private RobotsRules load(String origin) {
+        String robotsUrl = origin + "/robots.txt";
+        try {
+            FetchResult response = pageFetcher.fetchRaw(robotsUrl, MAX_ROBOTS_BYTES);
+            if (response.getStatusCode() != 200) {
+                System.out.println("robots.txt недоступен (" + response.getStatusCode() + "): " + robotsUrl);
+                return RobotsRules.ALLOW_ALL;
+            }
+            RobotsRules rules = RobotsRules.parse(new String(response.getBody(), StandardCharsets.UTF_8), getRobotName());
+            System.out.println("Загружен robots.txt: " + robotsUrl + ", Crawl-delay: " + rules.getCrawlDelaySeconds()
+                    + ", карт сайта: " + rules.getSitemaps().size());
+            return rules;
+        } catch (IOException e) {
+            System.out.println("Не удалось загрузить robots.txt: " + robotsUrl + " (" + e.getMessage() + ")");
+            return RobotsRules.ALLOW_ALL;
+        }
+    }
+
+    public static String originOf(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+            String origin = uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT);
+            return uri.getPort() > 0 ? origin + ":" + uri.getPort() : origin;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
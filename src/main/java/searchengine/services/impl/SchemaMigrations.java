@@ -0,0 +1,109 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.ContentCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Изменения схемы, которые ddl-auto: update не выполняет сам.
+ * Выполняются после того, как Hibernate обновил таблицы.
+ */
+@Component
+@RequiredArgsConstructor
+public class SchemaMigrations {
+
+    /**
+     * Уникальные ключи, не учитывающие поколение индекса: с ними новое поколение
+     * сайта нельзя было бы записать рядом с текущим.
+     */
+    private static final Map<String, Set<String>> OBSOLETE_UNIQUE_KEYS = Map.of(
+            "page", Set.of("path,site_id", "site_id,path", "url"),
+            "lemma", Set.of("site_id,lemma"));
+
+    private static final int CONTENT_MIGRATION_CHUNK_SIZE = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        OBSOLETE_UNIQUE_KEYS.forEach(this::dropUniqueKeys);
+        allowNullLegacyContent();
+        Thread thread = new Thread(this::compressLegacyContent, "content-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Новые страницы пишут HTML только в content_data, поэтому старая колонка
+     * content должна допускать NULL.
+     */
+    private void allowNullLegacyContent() {
+        List<String> nullable = jdbcTemplate.queryForList(
+                "SELECT IS_NULLABLE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'page' AND COLUMN_NAME = 'content'", String.class);
+        if (!nullable.isEmpty() && "NO".equals(nullable.get(0))) {
+            jdbcTemplate.execute("ALTER TABLE page MODIFY content MEDIUMTEXT NULL");
+            System.out.println("Колонка page.content теперь допускает NULL");
+        }
+    }
+
+    /**
+     * Переносит несжатый HTML старых страниц в content_data порциями в фоне.
+     * До переноса страница читается из старой колонки, поэтому поиск и индексация
+     * не ждут окончания миграции.
+     */
+    private void compressLegacyContent() {
+        long pages = 0;
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        try {
+            List<Map<String, Object>> rows;
+            while (!(rows = jdbcTemplate.queryForList(
+                    "SELECT id, content FROM page WHERE content IS NOT NULL AND content_data IS NULL LIMIT " + CONTENT_MIGRATION_CHUNK_SIZE)).isEmpty()) {
+                List<Object[]> updates = new ArrayList<>(rows.size());
+                for (Map<String, Object> row : rows) {
+                    byte[] raw = String.valueOf(row.get("content")).getBytes(StandardCharsets.UTF_8);
+                    byte[] compressed = ContentCodec.compress(raw);
+                    updates.add(new Object[]{compressed, ContentCodec.ratio(raw.length, compressed.length), row.get("id")});
+                    rawBytes += raw.length;
+                    compressedBytes += compressed.length;
+                }
+                jdbcTemplate.batchUpdate(
+                        "UPDATE page SET content_data = ?, compression_ratio = ?, content = NULL WHERE id = ? AND content_data IS NULL", updates);
+                pages += rows.size();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Ошибка переноса содержимого страниц в сжатый вид: " + e.getMessage());
+            e.printStackTrace();
+        }
+        if (pages > 0) {
+            System.out.println("Содержимое страниц сжато: " + pages + " страниц, " + rawBytes / 1024 + " КБ -> "
+                    + compressedBytes / 1024 + " КБ (в " + String.format("%.1f", (double) rawBytes / Math.max(1, compressedBytes)) + " раза)");
+        }
+    }
+
+    private void dropUniqueKeys(String table, Set<String> columnSets) {
+        List<Map<String, Object>> keys = jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME AS name, GROUP_CONCAT(COLUMN_NAME ORDER BY SEQ_IN_INDEX) AS columns " +
+                "FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND NON_UNIQUE = 0 AND INDEX_NAME <> 'PRIMARY' " +
+                "GROUP BY INDEX_NAME", table);
+        for (Map<String, Object> key : keys) {
+            String columns = String.valueOf(key.get("columns"));
+            if (columnSets.contains(columns)) {
+                String name = String.valueOf(key.get("name"));
+                jdbcTemplate.execute("ALTER TABLE " + table + " DROP INDEX `" + name + "`");
+                System.out.println("Удалён устаревший уникальный ключ " + name + " (" + columns + ") таблицы " + table);
+            }
+        }
+    }
+}
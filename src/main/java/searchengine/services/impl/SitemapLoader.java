@@ -0,0 +1,133 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.FetchResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Читает карты сайта (sitemap.xml, в том числе индексы карт и сжатые .gz)
+ * и возвращает адреса страниц: сначала недавно изменённые по lastmod,
+ * затем адреса без даты в порядке следования.
+ */
+@Component
+@RequiredArgsConstructor
+public class SitemapLoader {
+
+    private static final int MAX_SITEMAP_BYTES = 50 * 1024 * 1024;
+
+    private final CrawlerSettings crawlerSettings;
+    private final PageFetcher pageFetcher;
+
+    public List<String> load(Collection<String> sitemapUrls) {
+        Deque<String> pending = new ArrayDeque<>(sitemapUrls);
+        Set<String> seenSitemaps = new HashSet<>();
+        List<Entry> entries = new ArrayList<>();
+        int maxUrls = crawlerSettings.getMaxSitemapUrls();
+
+        while (!pending.isEmpty() && seenSitemaps.size() < crawlerSettings.getMaxSitemapFiles() && entries.size() < maxUrls) {
+            String sitemapUrl = pending.poll();
+            if (!seenSitemaps.add(sitemapUrl)) {
+                continue;
+            }
+            Document document = fetch(sitemapUrl);
+            if (document == null) {
+                continue;
+            }
+            for (Element sitemap : document.select("sitemapindex > sitemap > loc")) {
+                pending.add(sitemap.text().trim());
+            }
+            for (Element url : document.select("urlset > url")) {
+                String loc = childText(url, "loc");
+                if (loc == null || loc.isEmpty()) {
+                    continue;
+                }
+                String lastmod = childText(url, "lastmod");
+                entries.add(new Entry(loc, lastmod == null ? null : parseLastmod(lastmod), entries.size()));
+                if (entries.size() >= maxUrls) {
+                    break;
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing((Entry entry) -> entry.lastmod, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparingInt(entry -> entry.order));
+        List<String> urls = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            urls.add(entry.url);
+        }
+        System.out.println("Прочитано карт сайта: " + seenSitemaps.size() + ", адресов: " + urls.size());
+        return urls;
+    }
+
+    private Document fetch(String sitemapUrl) {
+        try {
+            FetchResult response = pageFetcher.fetchRaw(sitemapUrl, MAX_SITEMAP_BYTES);
+            if (response.getStatusCode() != 200) {
+                System.out.println("Карта сайта недоступна (" + response.getStatusCode() + "): " + sitemapUrl);
+                return null;
+            }
+            byte[] body = response.getBody();
+            InputStream input = new ByteArrayInputStream(body);
+            if (body.length > 1 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b) {
+                input = new GZIPInputStream(input);
+            }
+            try (InputStream xml = input) {
+                return Jsoup.parse(xml, null, sitemapUrl, Parser.xmlParser());
+            }
+        } catch (IOException e) {
+            System.out.println("Не удалось прочитать карту сайта: " + sitemapUrl + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Только прямые потомки: в записях бывают вложенные image:loc и video:loc.
+     */
+    private static String childText(Element parent, String tagName) {
+        for (Element child : parent.children()) {
+            if (child.tagName().equalsIgnoreCase(tagName)) {
+                return child.text().trim();
+            }
+        }
+        return null;
+    }
+
+    private static OffsetDateTime parseLastmod(String value) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(value.length() >= 10 ? value.substring(0, 10) : value).atStartOfDay().atOffset(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String url;
+        private final OffsetDateTime lastmod;
+        private final int order;
+
+        private Entry(String url, OffsetDateTime lastmod, int order) {
+            this.url = url;
+            this.lastmod = lastmod;
+            this.order = order;
+        }
+    }
+}
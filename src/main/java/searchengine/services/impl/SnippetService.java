@@ -1,6 +1,5 @@
 package searchengine.services.impl;
 
-import org.jsoup.Jsoup;
 import org.springframework.stereotype.Service;
 import searchengine.services.interfaces.MorphologyProcessor;
 
@@ -18,12 +17,15 @@ public class SnippetService {
         this.morphologyService = morphologyService;
     }
 
-    public String buildSnippet(String content, Set<String> lemmas) {
-        if (content == null || content.isEmpty()) {
+    /**
+     * @param text видимый текст страницы (поле page.text), без разметки
+     */
+    public String buildSnippet(String text, Set<String> lemmas) {
+        if (text == null || text.isEmpty()) {
             return "Содержимое страницы недоступно.";
         }
 
-        String plainText = Jsoup.parse(content).text().trim();
+        String plainText = text.trim();
         if (plainText.isEmpty()) {
             return "Текст страницы не найден.";
         }
@@ -82,7 +84,8 @@ public class SnippetService {
         if (normalForms == null || normalForms.isEmpty()) {
             return Collections.singletonList(word);
         }
-        normalForms.add(word);
-        return normalForms;
+        List<String> forms = new ArrayList<>(normalForms);
+        forms.add(word);
+        return forms;
     }
 }
@@ -11,6 +11,7 @@ import searchengine.model.Site;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.interfaces.IndexingService;
 import searchengine.services.interfaces.StatisticsService;
 
 import java.time.ZoneOffset;
@@ -27,6 +28,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
+    private final IndexingService indexingService;
 
 
 
@@ -38,7 +40,7 @@ public class StatisticsServiceImpl implements StatisticsService {
 
         int totalPages = pageRepository.countAllPages();
         int totalLemmas = lemmaRepository.countAllLemmas();
-        boolean isIndexing = IndexingServiceImpl.isIndexing;
+        boolean isIndexing = indexingService.isIndexing();
 
         totalStatistics.setSites(sites.size());
         totalStatistics.setPages(totalPages);
@@ -1,6 +1,22 @@
 package searchengine.services.interfaces;
 
+import searchengine.config.FetchResult;
+import searchengine.config.PreparedPage;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.util.List;
+import java.util.Optional;
+
 public interface IndexPageService {
 
     boolean indexPage(String url);
+
+    boolean indexPage(Site site, FetchResult fetchResult);
+
+    PreparedPage prepare(Site site, FetchResult fetchResult);
+
+    List<Boolean> writePages(List<PreparedPage> pages);
+
+    Optional<Page> findPage(Site site, String url);
 }
@@ -1,11 +1,14 @@
 package searchengine.services.interfaces;
 
 
+import searchengine.dto.indexing.IndexingStatusResponse;
 import searchengine.dto.search.Response;
+import searchengine.model.IndexingMode;
 
 
 public interface IndexingService {
-    Response startIndexing();
+    Response startIndexing(IndexingMode mode);
     Response stopIndexing();
     boolean isIndexing();
+    IndexingStatusResponse getStatus(String jobId);
 }
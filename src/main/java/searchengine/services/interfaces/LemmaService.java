@@ -1,17 +1,16 @@
 package searchengine.services.interfaces;
 
 import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.LemmaCounter;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
-import java.util.HashMap;
 import java.util.List;
 
 public interface LemmaService {
 
-    @Transactional
-    HashMap<String, Integer> collectLemmas(String text);
+    LemmaCounter collectLemmas(String text);
 
 
     @Transactional
@@ -0,0 +1,16 @@
+package searchengine.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import searchengine.Application;
+
+/**
+ * Запуск замера производительности обхода из тестового classpath:
+ * приложение стартует с профилем benchmark, остальные аргументы передаются как есть.
+ */
+public class BenchmarkApplication {
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setAdditionalProfiles("benchmark");
+        application.run(args);
+    }
+}
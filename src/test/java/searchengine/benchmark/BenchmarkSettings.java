@@ -0,0 +1,29 @@
+package searchengine.benchmark;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@Profile("benchmark")
+@ConfigurationProperties(prefix = "benchmark")
+public class BenchmarkSettings {
+    private int port = 0;
+    private int pages = 2_000;
+    private int fanOut = 8;
+    private int crossLinks = 4;
+    private int pageSize = 16 * 1024;
+    private int latencyMs = 20;
+    private double errorRate = 0.01;
+    private long seed = 42;
+    private int serverThreads = 64;
+    private int maxConcurrentRequests = 32;
+    private Duration timeout = Duration.ofMinutes(30);
+    private boolean exitOnFinish = true;
+}
@@ -0,0 +1,136 @@
+package searchengine.benchmark;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import searchengine.config.SiteConfig;
+import searchengine.config.SitesList;
+import searchengine.dto.indexing.IndexingStatusResponse;
+import searchengine.dto.search.Response;
+import searchengine.model.IndexingMode;
+import searchengine.services.interfaces.IndexingService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Замер производительности обхода на искусственном сайте (профиль benchmark).
+ * Подменяет список сайтов локальным сервером, запускает полную индексацию через
+ * IndexingService и выводит скорость обхода, объём загруженных данных,
+ * повторные загрузки одних и тех же страниц и пиковое использование кучи.
+ * Запуск: {@link BenchmarkApplication}, см. README.
+ */
+@Component
+@Profile("benchmark")
+@RequiredArgsConstructor
+public class CrawlerBenchmark implements CommandLineRunner {
+
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final long HEAP_SAMPLE_MS = 200;
+
+    private final BenchmarkSettings settings;
+    private final SitesList sitesList;
+    private final IndexingService indexingService;
+    private final ConfigurableApplicationContext context;
+
+    @Override
+    public void run(String... args) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "benchmark-heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        IndexingStatusResponse status;
+        long elapsedNanos;
+        try (SyntheticSiteServer server = new SyntheticSiteServer(settings)) {
+            server.start();
+            sitesList.setSites(List.of(benchmarkSite(server.getRootUrl())));
+            System.out.println("Бенчмарк: сайт " + server.getRootUrl() + ", страниц " + settings.getPages()
+                    + ", ветвление " + settings.getFanOut() + ", размер страницы " + settings.getPageSize()
+                    + " Б, задержка " + settings.getLatencyMs() + " мс, доля ошибок " + settings.getErrorRate());
+
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+            sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                    0, HEAP_SAMPLE_MS, TimeUnit.MILLISECONDS);
+
+            long started = System.nanoTime();
+            Response response = indexingService.startIndexing(IndexingMode.FULL);
+            if (!response.isResult()) {
+                System.out.println("Бенчмарк не запущен: " + response.getMessage());
+                return;
+            }
+            status = awaitCompletion(response.getJobId());
+            elapsedNanos = System.nanoTime() - started;
+            sampler.shutdownNow();
+
+            report(server, status, elapsedNanos, heapBefore, peakHeap.get());
+        } finally {
+            sampler.shutdownNow();
+        }
+
+        if (settings.isExitOnFinish()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private SiteConfig benchmarkSite(String rootUrl) {
+        SiteConfig site = new SiteConfig();
+        site.setUrl(rootUrl);
+        site.setName("Benchmark");
+        site.setMaxConcurrentRequests(settings.getMaxConcurrentRequests());
+        site.setRequestsPerSecond(0.0);
+        return site;
+    }
+
+    private IndexingStatusResponse awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + settings.getTimeout().toNanos();
+        IndexingStatusResponse status = indexingService.getStatus(jobId);
+        while (isRunning(status)) {
+            if (System.nanoTime() > deadline) {
+                System.out.println("Бенчмарк превысил таймаут " + settings.getTimeout() + ", индексация останавливается");
+                indexingService.stopIndexing();
+                while (isRunning(status = indexingService.getStatus(jobId))) {
+                    TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+                }
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+            status = indexingService.getStatus(jobId);
+        }
+        return status;
+    }
+
+    private static boolean isRunning(IndexingStatusResponse status) {
+        return "RUNNING".equals(status.getState()) || "CANCELLING".equals(status.getState());
+    }
+
+    private void report(SyntheticSiteServer server, IndexingStatusResponse status, long elapsedNanos, long heapBefore, long peakHeap) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println("================ Результаты бенчмарка ================");
+        System.out.printf("Состояние задачи:            %s%n", status.getState());
+        System.out.printf("Время:                       %.1f с%n", seconds);
+        System.out.printf("Загружено страниц:           %d из %d (уникальных на сервере %d)%n",
+                status.getPagesFetched(), settings.getPages(), server.getPagesServed());
+        System.out.printf("Проиндексировано страниц:    %d%n", status.getPagesIndexed());
+        System.out.printf("Страниц в секунду:           %.1f%n", seconds > 0 ? status.getPagesFetched() / seconds : 0);
+        System.out.printf("Запросов к серверу:          %d%n", server.getRequests());
+        System.out.printf("Передано данных:             %.1f МБ (%.1f МБ/с)%n",
+                server.getBytesSent() / 1048576.0, seconds > 0 ? server.getBytesSent() / 1048576.0 / seconds : 0);
+        System.out.printf("Повторные загрузки страниц:  %d%n", server.getDuplicateFetches());
+        System.out.printf("Ответов 500 / ошибок обхода: %d / %d%n", server.getErrorsServed(), status.getErrors());
+        System.out.printf("Куча до / пик:               %.1f / %.1f МБ%n", heapBefore / 1048576.0, peakHeap / 1048576.0);
+        System.out.println("======================================================");
+    }
+}
@@ -0,0 +1,190 @@
+package searchengine.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Локальный HTTP-сервер с искусственным сайтом для замеров обхода без обращения к реальным сайтам.
+ * Страницы образуют дерево с заданным ветвлением (все страницы достижимы с главной)
+ * и дополнительными перекрёстными ссылками, которые проверяют отсев уже посещённых адресов.
+ * Задержка ответа и доля ошибок 500 задаются настройками, содержимое детерминировано по seed.
+ */
+public class SyntheticSiteServer implements AutoCloseable {
+
+    private static final Pattern ARTICLE_PATH = Pattern.compile("/section-\\d+/article-(\\d+)\\.html");
+    private static final String[] WORDS = {
+            "поисковый", "движок", "индексация", "страница", "сайт", "лемма", "запрос", "ответ",
+            "сервер", "документ", "ссылка", "текст", "обход", "очередь", "частота", "релевантность",
+            "красота", "салон", "мастер", "услуга", "цена", "запись", "отзыв", "новость"
+    };
+
+    private final BenchmarkSettings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicIntegerArray hits;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong errorsServed = new AtomicLong();
+
+    public SyntheticSiteServer(BenchmarkSettings settings) throws IOException {
+        this.settings = settings;
+        this.hits = new AtomicIntegerArray(Math.max(1, settings.getPages()));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.getPort()), 0);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, settings.getServerThreads()));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public String getRootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getErrorsServed() {
+        return errorsServed.get();
+    }
+
+    public int getPagesServed() {
+        int served = 0;
+        for (int i = 0; i < hits.length(); i++) {
+            if (hits.get(i) > 0) {
+                served++;
+            }
+        }
+        return served;
+    }
+
+    /**
+     * Повторные запросы одной и той же страницы - признак того, что обход не отсеял уже посещённый адрес.
+     */
+    public long getDuplicateFetches() {
+        long duplicates = 0;
+        for (int i = 0; i < hits.length(); i++) {
+            duplicates += Math.max(0, hits.get(i) - 1);
+        }
+        return duplicates;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            int page = pageOf(exchange.getRequestURI().getPath());
+            if (page < 0) {
+                send(exchange, 404, "<html><body>Страница не найдена</body></html>");
+                return;
+            }
+            hits.incrementAndGet(page);
+            sleepLatency();
+            if (page != 0 && new SplittableRandom(settings.getSeed() * 31 + page * 17L + hits.get(page)).nextDouble() < settings.getErrorRate()) {
+                errorsServed.incrementAndGet();
+                send(exchange, 500, "<html><body>Внутренняя ошибка сервера</body></html>");
+                return;
+            }
+            send(exchange, 200, render(page));
+        }
+    }
+
+    private int pageOf(String path) {
+        if (path == null || path.equals("/") || path.isEmpty()) {
+            return 0;
+        }
+        Matcher matcher = ARTICLE_PATH.matcher(path);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        try {
+            int page = Integer.parseInt(matcher.group(1));
+            return page < settings.getPages() ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String render(int page) {
+        SplittableRandom random = new SplittableRandom(settings.getSeed() ^ (page * 0x9E3779B97F4A7C15L));
+        StringBuilder html = new StringBuilder(settings.getPageSize() + 1024);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Статья ")
+                .append(page).append("</title></head><body><nav>");
+
+        int fanOut = Math.max(1, settings.getFanOut());
+        for (int k = 1; k <= fanOut; k++) {
+            long child = (long) page * fanOut + k;
+            if (child < settings.getPages()) {
+                appendLink(html, (int) child);
+            }
+        }
+        for (int k = 0; k < settings.getCrossLinks(); k++) {
+            appendLink(html, random.nextInt(settings.getPages()));
+        }
+        html.append("<a href=\"/\">Главная</a></nav><main>");
+
+        while (html.length() < settings.getPageSize()) {
+            html.append("<p>");
+            for (int w = 0; w < 12; w++) {
+                html.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            html.append("</p>");
+        }
+        return html.append("</main></body></html>").toString();
+    }
+
+    private static void appendLink(StringBuilder html, int page) {
+        html.append("<a href=\"").append(pathOf(page)).append("\">Статья ").append(page).append("</a> ");
+    }
+
+    static String pathOf(int page) {
+        return page == 0 ? "/" : "/section-" + (page % 10) + "/article-" + page + ".html";
+    }
+
+    private void sleepLatency() {
+        if (settings.getLatencyMs() <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(settings.getLatencyMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        bytesSent.addAndGet(bytes.length);
+    }
+}
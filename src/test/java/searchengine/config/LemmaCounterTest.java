@@ -0,0 +1,97 @@
+package searchengine.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LemmaCounterTest {
+
+    @Test
+    void addAccumulatesCounts() {
+        LemmaCounter counter = new LemmaCounter();
+        counter.add("дом", 1);
+        counter.add("дом", 2);
+        counter.add("сад", 1);
+
+        assertEquals(2, counter.size());
+        assertEquals(3, counter.getInt("дом"));
+        assertEquals(1, counter.getInt("сад"));
+        assertEquals(0, counter.getInt("лес"));
+        assertNull(counter.get("лес"));
+        assertFalse(counter.containsKey("лес"));
+        assertFalse(counter.containsKey(42));
+    }
+
+    @Test
+    void putReplacesWhileAddIncrements() {
+        LemmaCounter counter = new LemmaCounter();
+        assertNull(counter.put("дом", 5));
+        assertEquals(5, counter.put("дом", 2));
+        assertEquals(2, counter.getInt("дом"));
+
+        counter.add("дом", 3);
+        assertEquals(5, counter.getInt("дом"));
+        assertEquals(1, counter.size());
+    }
+
+    @Test
+    void keepsAllEntriesAcrossResize() {
+        LemmaCounter counter = new LemmaCounter(4);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            String key = "слово" + (i % 3_000);
+            counter.add(key, i);
+            expected.merge(key, i, Integer::sum);
+        }
+
+        assertEquals(expected.size(), counter.size());
+        expected.forEach((key, value) -> assertEquals(value, counter.getInt(key), key));
+        assertEquals(expected, new HashMap<>(counter));
+    }
+
+    @Test
+    void entrySetIteratesEveryEntryOnce() {
+        LemmaCounter counter = new LemmaCounter(2);
+        for (int i = 0; i < 100; i++) {
+            counter.add("w" + i, i + 1);
+        }
+
+        Map<String, Integer> seen = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counter.entrySet()) {
+            assertNull(seen.put(entry.getKey(), entry.getValue()), entry.getKey());
+        }
+        assertEquals(100, seen.size());
+        assertEquals(100, counter.entrySet().size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, seen.get("w" + i));
+        }
+
+        Map<String, Integer> viaForEach = new HashMap<>();
+        counter.forEachInt(viaForEach::put);
+        assertEquals(seen, viaForEach);
+    }
+
+    @Test
+    void emptyIteratorIsExhausted() {
+        Iterator<Map.Entry<String, Integer>> iterator = new LemmaCounter().entrySet().iterator();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void clearRemovesEntries() {
+        LemmaCounter counter = new LemmaCounter();
+        counter.add("дом", 1);
+        counter.clear();
+
+        assertTrue(counter.isEmpty());
+        assertFalse(counter.containsKey("дом"));
+        counter.add("дом", 4);
+        assertEquals(4, counter.getInt("дом"));
+    }
+}
@@ -0,0 +1,56 @@
+package searchengine.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextTokenizerTest {
+
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        TextTokenizer.tokenize(text, words::add);
+        return words;
+    }
+
+    @Test
+    void splitsOnPunctuationAndLowercases() {
+        assertEquals(List.of("привет", "мир", "hello", "world"), tokenize("Привет, МИР! Hello\tWorld."));
+        assertEquals(List.of("ёлка", "ёж"), tokenize("Ёлка ЁЖ"));
+    }
+
+    @Test
+    void digitsHyphensAndApostrophesSplitWords() {
+        assertEquals(List.of("кто", "то", "don", "t", "abc", "def"), tokenize("кто-то don't abc123def"));
+    }
+
+    @Test
+    void scriptSwitchStartsNewWord() {
+        assertEquals(List.of("abc", "где", "xyz"), tokenize("abcгдеxyz"));
+        assertEquals(List.of("мир", "w"), tokenize("МИРw"));
+    }
+
+    @Test
+    void lettersOfOtherAlphabetsAreSeparators() {
+        assertEquals(List.of("caf", "und", "stra", "e"), tokenize("café und straße"));
+    }
+
+    @Test
+    void wordsLongerThanLimitAreDropped() {
+        String limit = "а".repeat(64);
+        String tooLong = "б".repeat(65);
+
+        assertEquals(List.of(limit), tokenize(limit));
+        assertEquals(List.of("до", "после"), tokenize("до " + tooLong + " после"));
+        assertEquals(List.of("abc"), tokenize(tooLong + "abc"));
+    }
+
+    @Test
+    void emptyAndNullTextProduceNothing() {
+        assertTrue(tokenize("").isEmpty());
+        assertTrue(tokenize("123 ... !!!").isEmpty());
+        assertTrue(tokenize(null).isEmpty());
+    }
+}